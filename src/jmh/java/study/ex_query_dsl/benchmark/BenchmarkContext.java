@@ -0,0 +1,46 @@
+package study.ex_query_dsl.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.ex_query_dsl.ExQueryDslApplication;
+import study.ex_query_dsl.seed.MemberSeeder;
+
+import java.util.stream.Stream;
+
+/**
+ * 벤치마크마다 메모리 H2로 애플리케이션을 띄우고 데이터를 넣어주는 도우미
+ */
+public class BenchmarkContext {
+    public static final int TEAMS = 10;
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(String... args) {
+        String[] allArgs = Stream.concat(Stream.of("--spring.profiles.active=bench"), Stream.of(args))
+                .toArray(String[]::new);
+        return new BenchmarkContext(SpringApplication.run(ExQueryDslApplication.class, allArgs));
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * teamA ~ teamJ 10개 팀에 회원을 members명 넣는다. (MemberSeeder, 나이는 0 ~ 99 균등)
+     */
+    public void seed(int members) {
+        getBean(MemberSeeder.class).seed(TEAMS, members);
+    }
+
+    public String getProperty(String key) {
+        return context.getEnvironment().getProperty(key);
+    }
+
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,71 @@
+package study.ex_query_dsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.repository.support.JoinElimination.leftJoinIfUsed;
+
+/**
+ * count 쿼리 : 항상 team 조인 vs 쓰일 때만 조인(JoinElimination)
+ * 팀 조건이 없는 검색(age 범위만)의 count 비용을 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JoinEliminationBenchmark {
+
+    @Param({"100000", "1000000"})
+    int members;
+
+    BenchmarkContext context;
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(members);
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Long alwaysJoin() {
+        return queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(20, 29))
+                .fetchOne();
+    }
+
+    @Benchmark
+    public Long joinIfUsed() {
+        JPAQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.age.between(20, 29));
+        return leftJoinIfUsed(query, member.team, team).fetchOne();
+    }
+}
@@ -0,0 +1,71 @@
+package study.ex_query_dsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchPageComplex : content → count 차례로 vs 동시에(PageExecutor)
+ * 커넥션 풀(poolSize)보다 호출 스레드(8)가 많거나 같게 잡아서 풀 경합이 있을 때도 이득이 있는지 본다.
+ * SampleTime이라 평균뿐 아니라 p99도 나온다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class ParallelPageBenchmark {
+
+    @Param({"100000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    @Param({"4", "16"})
+    int poolSize;
+
+    BenchmarkContext context;
+    MemberRepository memberRepository;
+    MemberSearchCondition condition;
+    Pageable pageable;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "--querydsl.page.parallel=" + parallel,
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize);
+        context.seed(members);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(79);
+        //첫 페이지가 아니어야 count가 생략되지 않는다.
+        pageable = PageRequest.of(10, 20);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageable);
+    }
+}
@@ -0,0 +1,66 @@
+package study.ex_query_dsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 쓰기 트랜잭션 안에서 회원 엔티티 전체 조회 : selectFrom vs readOnlySelectFrom
+ * 커밋 시점의 flush(dirty checking)까지 포함해서 잰다.
+ * 힙 할당량(gc.alloc.rate.norm = 호출 1번당 바이트)은 gc 프로파일러로 본다.
+ * ./gradlew jmh -Pjmh.includes=ReadOnlyQueryBenchmark -Pjmh.profilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    @Param({"10000", "100000"})
+    int members;
+
+    BenchmarkContext context;
+    MemberTestRepository memberTestRepository;
+    TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(members);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int managed() {
+        return transactionTemplate.execute(status -> {
+            List<Member> result = memberTestRepository.basicSelectFrom();
+            return result.size();
+        });
+    }
+
+    @Benchmark
+    public int readOnly() {
+        return transactionTemplate.execute(status -> {
+            List<Member> result = memberTestRepository.readOnlySelectAll();
+            return result.size();
+        });
+    }
+}
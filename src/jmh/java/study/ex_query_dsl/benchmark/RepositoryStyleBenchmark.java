@@ -0,0 +1,74 @@
+package study.ex_query_dsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.repository.MemberJpaRepository;
+import study.ex_query_dsl.repository.MemberRepository;
+import study.ex_query_dsl.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 search 조건을 리포지토리 스타일별로 비교한다.
+ * - MemberJpaRepository : 순수 JPAQueryFactory
+ * - MemberRepository(MemberRepositoryImpl) : QuerydslRepositorySupport
+ * - MemberTestRepository : Querydsl4RepositorySupport
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryStyleBenchmark {
+
+    @Param({"1000", "100000"})
+    int members;
+
+    BenchmarkContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberRepository memberRepository;
+    MemberTestRepository memberTestRepository;
+    MemberSearchCondition condition;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(members);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamD");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(29);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaQueryFactory() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydslRepositorySupport() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydsl4RepositorySupport() {
+        return memberTestRepository.search(condition);
+    }
+}
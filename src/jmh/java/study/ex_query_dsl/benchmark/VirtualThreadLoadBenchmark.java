@@ -0,0 +1,76 @@
+package study.ex_query_dsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 부하 테스트 : Tomcat 플랫폼 스레드 vs 가상 스레드(+ ConnectionLimitFilter)
+ * 웹 서버를 실제로 띄우고 256개 스레드가 /v3/members를 계속 호출한다.
+ * 커넥션 풀(10)보다 요청이 훨씬 많아서 커넥션을 기다리는 구간이 생긴다.
+ * Throughput(ops/ms)과 SampleTime(p99)을 같이 본다.
+ *
+ * ex) ./gradlew jmh -Pjmh.includes=VirtualThreadLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class VirtualThreadLoadBenchmark {
+
+    @Param({"100000"})
+    int members;
+
+    @Param({"false", "true"})
+    boolean virtual;
+
+    BenchmarkContext context;
+    HttpClient client;
+    HttpRequest request;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "--spring.main.web-application-type=servlet",
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.hikari.maximum-pool-size=10");
+        context.seed(members);
+
+        client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        String port = context.getProperty("local.server.port");
+        request = HttpRequest.newBuilder(URI.create(
+                "http://localhost:" + port + "/v3/members?ageGoe=20&ageLoe=79&page=10&size=20&count=EXACT")).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int searchPage() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
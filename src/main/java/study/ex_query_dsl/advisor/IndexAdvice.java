@@ -0,0 +1,19 @@
+package study.ex_query_dsl.advisor;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IndexAdvice {
+    private final String query; //어느 리포지토리 메소드인지
+    private final String shape; //어떤 조건이 들어갔는지 ex) username+ageGoe
+    private final String sql;
+    private final String plan; //H2 EXPLAIN 결과
+    private final List<String> scannedTables; //인덱스 없이 풀스캔한 테이블
+
+    //조건이 하나라도 있는데 풀스캔을 했다면 인덱스가 필요한 경우
+    public boolean isNeedsIndex() {
+        return !"none".equals(shape) && !scannedTables.isEmpty();
+    }
+}
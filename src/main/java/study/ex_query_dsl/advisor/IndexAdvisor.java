@@ -0,0 +1,114 @@
+package study.ex_query_dsl.advisor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.config.CacheConfig;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.repository.MemberJpaRepository;
+import study.ex_query_dsl.repository.MemberRepository;
+import study.ex_query_dsl.repository.MemberTestRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 인덱스 점검
+ * 리포지토리 검색 메소드를 조건 shape(16가지)별로 한 번씩 실행해서 Hibernate가 만든 SQL을 잡고,
+ * H2 EXPLAIN으로 실행 계획을 봐서 풀스캔(tableScan)하는 테이블을 찾는다.
+ * 테스트나 actuator(/actuator/indexadvisor)에서 실행한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexAdvisor {
+    //H2 실행 계획에서 인덱스를 못 타면 /* PUBLIC.MEMBER.tableScan */ 처럼 나온다.
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* (\\S+)\\.tableScan");
+    private static final Pattern LEADING_COMMENT = Pattern.compile("^\\s*/\\*.*?\\*/\\s*", Pattern.DOTALL);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final MemberTestRepository memberTestRepository;
+
+    public List<IndexAdvice> advise() {
+        List<IndexAdvice> result = new ArrayList<>();
+        for (int shape = 0; shape < 16; shape++) {
+            result.addAll(advise(shape));
+        }
+        return result;
+    }
+
+    public List<IndexAdvice> advise(int shape) {
+        MemberSearchCondition condition = sampleCondition(shape);
+        List<IndexAdvice> result = new ArrayList<>();
+        for (Map.Entry<String, Consumer<MemberSearchCondition>> query : queries().entrySet()) {
+            //캐시에 걸리면 SQL이 안 나가기 때문에 비우고 실행한다.
+            clearSearchCaches();
+            List<String> sqls = SqlCapture.capture(() -> query.getValue().accept(condition));
+            for (String sql : sqls) {
+                String statement = LEADING_COMMENT.matcher(sql).replaceFirst("");
+                if (!statement.regionMatches(true, 0, "select", 0, 6)) {
+                    continue;
+                }
+                String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement, String.class);
+                result.add(new IndexAdvice(query.getKey(), shapeName(shape), statement, plan, scannedTables(plan)));
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Consumer<MemberSearchCondition>> queries() {
+        Map<String, Consumer<MemberSearchCondition>> queries = new LinkedHashMap<>();
+        queries.put("MemberJpaRepository.search", memberJpaRepository::search);
+        //size 1이면 결과가 있을 때 count 쿼리도 같이 나간다.
+        queries.put("MemberRepository.searchPageComplex",
+                condition -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)));
+        queries.put("MemberTestRepository.search", memberTestRepository::search);
+        return queries;
+    }
+
+    private static MemberSearchCondition sampleCondition(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & MemberSearchCondition.USERNAME) != 0) condition.setUsername("member1");
+        if ((shape & MemberSearchCondition.TEAM_NAME) != 0) condition.setTeamName("teamA");
+        if ((shape & MemberSearchCondition.AGE_GOE) != 0) condition.setAgeGoe(10);
+        if ((shape & MemberSearchCondition.AGE_LOE) != 0) condition.setAgeLoe(20);
+        return condition;
+    }
+
+    private static String shapeName(int shape) {
+        List<String> names = new ArrayList<>();
+        if ((shape & MemberSearchCondition.USERNAME) != 0) names.add("username");
+        if ((shape & MemberSearchCondition.TEAM_NAME) != 0) names.add("teamName");
+        if ((shape & MemberSearchCondition.AGE_GOE) != 0) names.add("ageGoe");
+        if ((shape & MemberSearchCondition.AGE_LOE) != 0) names.add("ageLoe");
+        return names.isEmpty() ? "none" : String.join("+", names);
+    }
+
+    private static List<String> scannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    private void clearSearchCaches() {
+        for (String name : List.of(CacheConfig.MEMBER_SEARCH, CacheConfig.MEMBER_SEARCH_PAGE)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
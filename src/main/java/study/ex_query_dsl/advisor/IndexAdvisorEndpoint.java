@@ -0,0 +1,30 @@
+package study.ex_query_dsl.advisor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GET /actuator/indexadvisor : 모든 shape
+ * GET /actuator/indexadvisor/{shape} : MemberSearchCondition.shapeMask() 값 하나 ex) 1 = username
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+    private final IndexAdvisor indexAdvisor;
+
+    @ReadOperation
+    public List<IndexAdvice> advise() {
+        return indexAdvisor.advise();
+    }
+
+    @ReadOperation
+    public List<IndexAdvice> adviseShape(@Selector int shape) {
+        return indexAdvisor.advise(shape);
+    }
+}
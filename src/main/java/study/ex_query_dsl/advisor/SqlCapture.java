@@ -0,0 +1,40 @@
+package study.ex_query_dsl.advisor;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate가 실제로 만든 SQL을 가로채서 모아준다.
+ * capture() 안에서 실행된 SQL만 현재 스레드에 쌓이고, 그 외에는 아무것도 하지 않는다.
+ */
+public class SqlCapture implements StatementInspector {
+    public static final SqlCapture INSTANCE = new SqlCapture();
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    private SqlCapture() {
+    }
+
+    public static List<String> capture(Runnable action) {
+        List<String> previous = CAPTURED.get();
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            action.run();
+        } finally {
+            CAPTURED.set(previous);
+        }
+        return captured;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,280 @@
+package study.ex_query_dsl.columnar;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangeTracker;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * 회원 검색용 메모리 컬럼 인덱스 (member.index.enabled=true 일 때만)
+ * member ⋈ team 전체를 MemberColumns로 올려두고 search/searchPageComplex를 DB 없이 처리한다.
+ *
+ * 한 건씩 커밋된 Member/Team 변경은 MemberColumnarIndexListener가 스냅샷의 오버레이에 바로 반영한다.
+ * 오버레이가 MAX_CHANGED_ROWS를 넘으면 백그라운드에서 다시 만들어 접어 넣는다. (그동안에도 지금 스냅샷으로 답한다)
+ *
+ * 벌크 연산(행 단위 이벤트가 없다)이나 팀 이름 변경은 버전을 올려서 스냅샷을 stale로 만들고 백그라운드에서 다시 만든다.
+ * 다시 만들어지기 전까지는 Optional.empty()를 돌려주고 호출한 쪽이 DB로 조회한다.
+ * 현재 트랜잭션에 커밋 안 된 변경이 있어도 DB로 간다. 그래서 결과는 항상 DB로 조회했을 때와 같다.
+ *
+ * 정렬(Sort)과 텍스트 조건(usernamePrefix 등, MemberTextIndex)은 지원하지 않는다. 결과는 member_id 순이다.
+ */
+@Slf4j
+@Component
+public class MemberColumnarIndex {
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    private static final int MAX_CHANGED_ROWS = 4_096;
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityChangeTracker entityChangeTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Counter hits;
+    private final Counter fallbacks;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private volatile MemberColumns columns;
+
+    //columns 교체, 다시 만드는 중의 변경 기록은 이 락 안에서
+    private final Object lock = new Object();
+    //다시 만드는 중에 커밋된 행 단위 변경. 다 읽은 스냅샷에 다시 적용한다. (null = 다시 만드는 중이 아님)
+    private List<UnaryOperator<MemberColumns>> changesDuringLoad;
+
+    public MemberColumnarIndex(JPAQueryFactory queryFactory, EntityChangeTracker entityChangeTracker,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${member.index.enabled:false}") boolean enabled) {
+        this.queryFactory = queryFactory;
+        this.entityChangeTracker = entityChangeTracker;
+        //replica는 늦을 수 있으니 primary에서 읽는다. (readOnly로 두지 않는다)
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.hits = Counter.builder("member.index.queries").tag("result", "hit").register(meterRegistry);
+        this.fallbacks = Counter.builder("member.index.queries").tag("result", "fallback").register(meterRegistry);
+        Gauge.builder("member.index.rows", this, index -> index.columns == null ? 0 : index.columns.size())
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        if (condition.hasTextSearch()) {
+            return Optional.empty();
+        }
+        MemberColumns current = current();
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.match(condition).toDtos(0, Integer.MAX_VALUE));
+    }
+
+    public Optional<Page<MemberTeamDto>> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.getSort().isSorted() || condition.hasTextSearch()) {
+            return Optional.empty();
+        }
+        MemberColumns current = current();
+        if (current == null) {
+            return Optional.empty();
+        }
+        MemberColumns.Matches matches = current.match(condition);
+        if (pageable.isUnpaged()) {
+            return Optional.of(new PageImpl<>(matches.toDtos(0, Integer.MAX_VALUE), pageable, matches.count()));
+        }
+        List<MemberTeamDto> content = matches.toDtos(pageable.getOffset(), pageable.getPageSize());
+        return Optional.of(new PageImpl<>(content, pageable, matches.count()));
+    }
+
+    /**
+     * 지금 쓸 수 있는 스냅샷. 없거나 stale이면 null이고 다시 만들기를 요청한다.
+     */
+    private MemberColumns current() {
+        if (!enabled) {
+            return null;
+        }
+        MemberColumns current = columns;
+        if (current == null || current.getVersion() != version.get()) {
+            fallbacks.increment();
+            requestRebuild();
+            return null;
+        }
+        if (entityChangeTracker.hasPendingChanges()) {
+            fallbacks.increment();
+            return null;
+        }
+        hits.increment();
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        requestRebuild();
+    }
+
+    //행 단위 변경은 리스너가 이미 반영했다. 어떤 행이 바뀌었는지 모르는 벌크 연산만 다시 읽는다.
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.containsStatement(Member.class) || event.containsStatement(Team.class)) {
+            version.incrementAndGet();
+            requestRebuild();
+        }
+    }
+
+    void memberSaved(long id, String username, int age, Long teamId) {
+        apply(columns -> columns.withMember(id, username, age, teamId));
+    }
+
+    void memberDeleted(long id) {
+        apply(columns -> columns.withoutMember(id));
+    }
+
+    void teamSaved(long id, String name) {
+        apply(columns -> columns.withTeam(id, name));
+    }
+
+    void teamDeleted(long id) {
+        apply(columns -> columns.withTeam(id, null));
+    }
+
+    private void apply(UnaryOperator<MemberColumns> change) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+            if (columns == null) {
+                return;
+            }
+            MemberColumns changed = change.apply(columns);
+            if (changed == null) {
+                version.incrementAndGet();
+                requestRebuild();
+                return;
+            }
+            columns = changed;
+            if (changed.changedSize() > MAX_CHANGED_ROWS) {
+                requestRebuild();
+            }
+        }
+    }
+
+    /**
+     * 지금 스레드에서 바로 다시 만든다. (테스트, 운영 중 수동 갱신용)
+     */
+    public synchronized void rebuild() {
+        long loadingVersion;
+        synchronized (lock) {
+            loadingVersion = version.get();
+            changesDuringLoad = new ArrayList<>();
+        }
+        MemberColumns loaded = null;
+        try {
+            loaded = load(loadingVersion);
+        } finally {
+            synchronized (lock) {
+                //DB에서 읽은 값보다 그동안 커밋된 행 단위 변경이 최신이다. (이미 읽힌 변경은 다시 적용해도 같다)
+                for (int i = 0; loaded != null && i < changesDuringLoad.size(); i++) {
+                    MemberColumns changed = changesDuringLoad.get(i).apply(loaded);
+                    if (changed == null) {
+                        //그동안 팀 이름이 바뀌었다. 한 번 더 읽는다.
+                        version.incrementAndGet();
+                    }
+                    loaded = changed;
+                }
+                changesDuringLoad = null;
+                //읽다가 실패했으면 지금 스냅샷(오버레이 포함)을 그대로 쓴다.
+                if (loaded != null) {
+                    columns = loaded;
+                }
+            }
+        }
+    }
+
+    private void requestRebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                //만드는 도중에 또 바뀌었으면 한 번 더
+                do {
+                    rebuild();
+                } while (isStale());
+            } catch (RuntimeException e) {
+                log.warn("member columnar index rebuild failed", e);
+                return;
+            } finally {
+                rebuilding.set(false);
+            }
+            //rebuilding을 내리기 직전에 들어온 변경은 여기서 다시 잡는다.
+            if (isStale()) {
+                requestRebuild();
+            }
+        });
+    }
+
+    private boolean isStale() {
+        MemberColumns current = columns;
+        return current == null || current.getVersion() != version.get();
+    }
+
+    private MemberColumns load(long loadingVersion) {
+        return transactionTemplate.execute(status -> {
+            MemberColumns.Builder builder = new MemberColumns.Builder();
+            try (Stream<Tuple> rows = queryFactory
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .orderBy(member.id.asc())
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, LOAD_FETCH_SIZE)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .stream()) {
+                rows.forEach(row -> builder.add(row.get(member.id), row.get(member.username), row.get(member.age),
+                        row.get(team.id), row.get(team.name)));
+            }
+            return builder.build(loadingVersion);
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+}
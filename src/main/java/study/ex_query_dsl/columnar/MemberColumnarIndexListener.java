@@ -0,0 +1,90 @@
+package study.ex_query_dsl.columnar;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+/**
+ * Member/Team이 insert/update/delete 된 트랜잭션이 커밋되면 MemberColumnarIndex의 오버레이에 한 건씩 반영한다.
+ * 롤백되면 아무것도 하지 않는다. (POST_COMMIT_* 이벤트, MemberTextIndexListener와 같은 방식)
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberColumnarIndexListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberColumnarIndex memberColumnarIndex;
+
+    @PostConstruct
+    public void register() {
+        if (!memberColumnarIndex.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member m) {
+            memberColumnarIndex.memberDeleted(m.getId());
+        } else if (event.getEntity() instanceof Team t) {
+            memberColumnarIndex.teamDeleted(t.getId());
+        }
+    }
+
+    private void saved(Object entity) {
+        if (entity instanceof Member m) {
+            //프록시여도 getId()는 초기화하지 않는다.
+            memberColumnarIndex.memberSaved(m.getId(), m.getUsername(), m.getAge(),
+                    m.getTeam() == null ? null : m.getTeam().getId());
+        } else if (entity instanceof Team t) {
+            memberColumnarIndex.teamSaved(t.getId(), t.getName());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Member.class || type == Team.class;
+    }
+}
@@ -0,0 +1,353 @@
+package study.ex_query_dsl.columnar;
+
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * member ⋈ team 을 컬럼별 배열로 들고 있는 스냅샷 (한 번 만들면 바뀌지 않는다)
+ * 행 번호(row)는 member_id 순서다.
+ *
+ * - id, age : long[], int[]
+ * - username, team : 사전 인코딩. 행에는 int 코드만 두고 문자열은 사전에 한 번만 둔다. (-1 = null)
+ * - age : 나이순으로 정렬한 행 번호 (범위 조건은 이진 탐색)
+ * - team : 팀 이름별 행 비트맵
+ *
+ * 만든 뒤에 커밋된 행 단위 변경은 배열을 고치지 않고 오버레이(member_id → 바뀐 행, 삭제면 null)에 쌓는다.
+ * withMember/withTeam은 배열을 같이 쓰고 오버레이만 바꾼 새 스냅샷을 돌려준다.
+ */
+final class MemberColumns {
+    private static final int NULL = -1;
+
+    private final long version;
+    private final int size;
+    private final long[] ids;
+    private final int[] ages;
+    private final int[] usernameCodes;
+    private final int[] teamCodes;
+
+    private final String[] usernames;
+    private final Map<String, Integer> usernameCodeByValue;
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private final Map<Long, Integer> teamCodeById;
+
+    private final int[] rowsByAge;
+    private final Map<String, BitSet> rowsByTeamName;
+
+    //스냅샷 뒤에 바뀐 회원 (member_id 순, 삭제면 null)과 새로 생긴 팀 이름
+    private final NavigableMap<Long, MemberTeamDto> changedRows;
+    private final Map<Long, String> addedTeamNames;
+
+    private MemberColumns(long version, Builder builder) {
+        this.version = version;
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+        this.teamCodes = Arrays.copyOf(builder.teamCodes, size);
+        this.usernames = builder.usernames.toArray(String[]::new);
+        this.usernameCodeByValue = builder.usernameCodeByValue;
+        this.teamIds = builder.teamIds.stream().mapToLong(Long::longValue).toArray();
+        this.teamNames = builder.teamNames.toArray(String[]::new);
+        this.teamCodeById = builder.teamCodeById;
+        this.changedRows = new TreeMap<>();
+        this.addedTeamNames = new HashMap<>();
+
+        //(age, row)를 long 하나로 묶어서 정렬한다. (박싱 없이 Arrays.sort)
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = ((long) ages[row] << 32) | row;
+        }
+        Arrays.sort(keys);
+        this.rowsByAge = new int[size];
+        for (int i = 0; i < size; i++) {
+            rowsByAge[i] = (int) keys[i];
+        }
+
+        this.rowsByTeamName = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            int teamCode = teamCodes[row];
+            if (teamCode != NULL) {
+                //팀이 많으면 팀마다 size 비트를 잡는 게 아깝다. 필요한 만큼만 자란다.
+                rowsByTeamName.computeIfAbsent(teamNames[teamCode], k -> new BitSet()).set(row);
+            }
+        }
+    }
+
+    private MemberColumns(MemberColumns base, NavigableMap<Long, MemberTeamDto> changedRows, Map<Long, String> addedTeamNames) {
+        this.version = base.version;
+        this.size = base.size;
+        this.ids = base.ids;
+        this.ages = base.ages;
+        this.usernameCodes = base.usernameCodes;
+        this.teamCodes = base.teamCodes;
+        this.usernames = base.usernames;
+        this.usernameCodeByValue = base.usernameCodeByValue;
+        this.teamIds = base.teamIds;
+        this.teamNames = base.teamNames;
+        this.teamCodeById = base.teamCodeById;
+        this.rowsByAge = base.rowsByAge;
+        this.rowsByTeamName = base.rowsByTeamName;
+        this.changedRows = changedRows;
+        this.addedTeamNames = addedTeamNames;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int changedSize() {
+        return changedRows.size();
+    }
+
+    /**
+     * 회원 한 명이 insert/update 커밋됐을 때
+     *
+     * @return 팀 이름을 모르면(스냅샷에도 오버레이에도 없는 팀) null. 통째로 다시 읽어야 한다.
+     */
+    MemberColumns withMember(long id, String username, int age, Long teamId) {
+        String teamName = null;
+        if (teamId != null) {
+            teamName = teamName(teamId);
+            if (teamName == null) {
+                return null;
+            }
+        }
+        NavigableMap<Long, MemberTeamDto> changed = new TreeMap<>(changedRows);
+        changed.put(id, new MemberTeamDto(id, username, age, teamId, teamName));
+        return new MemberColumns(this, changed, addedTeamNames);
+    }
+
+    MemberColumns withoutMember(long id) {
+        NavigableMap<Long, MemberTeamDto> changed = new TreeMap<>(changedRows);
+        changed.put(id, null);
+        return new MemberColumns(this, changed, addedTeamNames);
+    }
+
+    /**
+     * 팀 하나가 커밋됐을 때 (name == null이면 삭제)
+     *
+     * @return 이미 있던 팀의 이름이 바뀌었으면 null. 그 팀 회원이 전부 바뀌므로 통째로 다시 읽어야 한다.
+     */
+    MemberColumns withTeam(long teamId, String name) {
+        String current = teamName(teamId);
+        if (Objects.equals(current, name)) {
+            return this;
+        }
+        if (current != null && name != null) {
+            return null;
+        }
+        //새 팀이거나 지운 팀 (회원이 없는 팀만 지울 수 있다)
+        Map<Long, String> added = new HashMap<>(addedTeamNames);
+        if (name == null) {
+            added.remove(teamId);
+        } else {
+            added.put(teamId, name);
+        }
+        return new MemberColumns(this, changedRows, added);
+    }
+
+    private String teamName(long teamId) {
+        String added = addedTeamNames.get(teamId);
+        if (added != null) {
+            return added;
+        }
+        Integer code = teamCodeById.get(teamId);
+        return code == null ? null : teamNames[code];
+    }
+
+    /**
+     * 조건에 맞는 행 (member_id 순)
+     */
+    Matches match(MemberSearchCondition condition) {
+        BitSet rows = matchRows(condition);
+        List<MemberTeamDto> changed = new ArrayList<>();
+        for (Map.Entry<Long, MemberTeamDto> entry : changedRows.entrySet()) {
+            //스냅샷의 옛 값은 빼고 바뀐 값으로 다시 본다.
+            int row = rowOf(entry.getKey());
+            if (row >= 0) {
+                rows.clear(row);
+            }
+            MemberTeamDto dto = entry.getValue();
+            if (dto != null && matches(dto, condition)) {
+                changed.add(dto);
+            }
+        }
+        return new Matches(rows, changed);
+    }
+
+    private static boolean matches(MemberTeamDto dto, MemberSearchCondition condition) {
+        return (!hasText(condition.getUsername()) || condition.getUsername().equals(dto.getUsername()))
+                && (!hasText(condition.getTeamName()) || condition.getTeamName().equals(dto.getTeamName()))
+                && (condition.getAgeGoe() == null || dto.getAge() >= condition.getAgeGoe())
+                && (condition.getAgeLoe() == null || dto.getAge() <= condition.getAgeLoe());
+    }
+
+    //ids는 member_id 순이라 이진 탐색한다. 없으면 음수
+    private int rowOf(long id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    private BitSet matchRows(MemberSearchCondition condition) {
+        BitSet rows = new BitSet(size);
+        rows.set(0, size);
+
+        if (hasText(condition.getTeamName())) {
+            BitSet team = rowsByTeamName.get(condition.getTeamName());
+            if (team == null) {
+                return new BitSet();
+            }
+            rows.and(team);
+        }
+
+        if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            int from = condition.getAgeGoe() == null ? 0 : firstAgeAtLeast(condition.getAgeGoe());
+            int to = condition.getAgeLoe() == null ? size : firstAgeAbove(condition.getAgeLoe());
+            BitSet ageRows = new BitSet(size);
+            for (int i = from; i < to; i++) {
+                ageRows.set(rowsByAge[i]);
+            }
+            rows.and(ageRows);
+        }
+
+        if (hasText(condition.getUsername())) {
+            Integer code = usernameCodeByValue.get(condition.getUsername());
+            if (code == null) {
+                return new BitSet();
+            }
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (usernameCodes[row] != code) {
+                    rows.clear(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 스냅샷 행(rows)과 오버레이 행(changed)을 member_id 순으로 합쳐서 본다.
+     */
+    final class Matches {
+        private final BitSet rows;
+        private final List<MemberTeamDto> changed;
+
+        private Matches(BitSet rows, List<MemberTeamDto> changed) {
+            this.rows = rows;
+            this.changed = changed;
+        }
+
+        int count() {
+            return rows.cardinality() + changed.size();
+        }
+
+        List<MemberTeamDto> toDtos(long offset, int limit) {
+            List<MemberTeamDto> result = new ArrayList<>(Math.min(limit, count()));
+            int row = rows.nextSetBit(0);
+            Iterator<MemberTeamDto> others = changed.iterator();
+            MemberTeamDto other = others.hasNext() ? others.next() : null;
+            for (long skipped = 0; (row >= 0 || other != null) && result.size() < limit; skipped++) {
+                boolean fromRows = other == null || row >= 0 && ids[row] < other.getMemberId();
+                if (skipped >= offset) {
+                    result.add(fromRows ? toDto(row) : other);
+                }
+                if (fromRows) {
+                    row = rows.nextSetBit(row + 1);
+                } else {
+                    other = others.hasNext() ? others.next() : null;
+                }
+            }
+            return result;
+        }
+    }
+
+    private MemberTeamDto toDto(int row) {
+        int usernameCode = usernameCodes[row];
+        int teamCode = teamCodes[row];
+        return new MemberTeamDto(
+                ids[row],
+                usernameCode == NULL ? null : usernames[usernameCode],
+                ages[row],
+                teamCode == NULL ? null : teamIds[teamCode],
+                teamCode == NULL ? null : teamNames[teamCode]);
+    }
+
+    //rowsByAge에서 age >= value 인 첫 위치
+    private int firstAgeAtLeast(int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[rowsByAge[mid]] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //rowsByAge에서 age > value 인 첫 위치
+    private int firstAgeAbove(int value) {
+        return value == Integer.MAX_VALUE ? size : firstAgeAtLeast(value + 1);
+    }
+
+    /**
+     * member_id 순서로 한 행씩 넣는다.
+     */
+    static final class Builder {
+        private int size;
+        private long[] ids = new long[1024];
+        private int[] ages = new int[1024];
+        private int[] usernameCodes = new int[1024];
+        private int[] teamCodes = new int[1024];
+
+        private final List<String> usernames = new ArrayList<>();
+        private final Map<String, Integer> usernameCodeByValue = new HashMap<>();
+        private final List<Long> teamIds = new ArrayList<>();
+        private final List<String> teamNames = new ArrayList<>();
+        private final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+        void add(long id, String username, int age, Long teamId, String teamName) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            ids[size] = id;
+            ages[size] = age;
+            usernameCodes[size] = username == null ? NULL : usernameCodeByValue.computeIfAbsent(username, value -> {
+                usernames.add(value);
+                return usernames.size() - 1;
+            });
+            teamCodes[size] = teamId == null ? NULL : teamCodeById.computeIfAbsent(teamId, key -> {
+                teamIds.add(key);
+                teamNames.add(teamName);
+                return teamIds.size() - 1;
+            });
+            size++;
+        }
+
+        MemberColumns build(long version) {
+            return new MemberColumns(version, this);
+        }
+    }
+}
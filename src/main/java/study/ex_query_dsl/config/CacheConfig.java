@@ -0,0 +1,15 @@
+package study.ex_query_dsl.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 캐시 크기/TTL은 yml의 spring.cache.caffeine.spec에서 설정한다.
+ * recordStats를 켜두면 actuator에서 cache.gets(hit/miss), cache.evictions 메트릭을 볼 수 있다.
+ */
+@EnableCaching
+@Configuration
+public class CacheConfig {
+    public static final String MEMBER_SEARCH = "memberSearch";
+    public static final String MEMBER_SEARCH_PAGE = "memberSearchPage";
+}
@@ -0,0 +1,108 @@
+package study.ex_query_dsl.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 가상 스레드에서는 요청 수만큼 스레드가 생기므로 (Tomcat 스레드 200개 같은 상한이 없다)
+ * 수천 개가 동시에 Hikari 커넥션을 기다리다가 connectionTimeout으로 한꺼번에 터진다.
+ * 커넥션 풀 크기만큼만 요청을 통과시키고 나머지는 여기서 기다리게 한다. (가상 스레드는 기다리는 비용이 거의 없다)
+ * acquireTimeout 안에 차례가 안 오면 503
+ *
+ * 비동기 응답(StreamingResponseBody 등)은 doFilter가 먼저 돌아오고 DB 조회는 그 뒤에 일어나므로 응답이 끝날 때 permit을 돌려준다.
+ */
+public class ConnectionLimitFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public ConnectionLimitFilter(int permits, Duration acquireTimeout) {
+        this.permits = new Semaphore(permits, true); //먼저 온 요청부터
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    //actuator는 DB를 안 쓰는 것도 많고, 꽉 찼을 때 상태를 봐야 하니 제외
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    //onError/onTimeout 뒤에 onComplete도 불리므로 한 번만 돌려준다.
+    private class ReleaseOnComplete implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            //다시 startAsync 하면 새 AsyncContext에 다시 붙인다.
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,45 @@
+package study.ex_query_dsl.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+/**
+ * Member, Team이 바뀌면 검색 결과 캐시를 통째로 비운다.
+ * 조건별로 어떤 결과가 영향을 받는지 계산하는 것보다 비우는 게 훨씬 싸다.
+ */
+@Component
+public class MemberSearchCacheEvictor {
+    private final CacheManager cacheManager;
+    private final Counter invalidations;
+
+    public MemberSearchCacheEvictor(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.invalidations = Counter.builder("member.search.cache.invalidations")
+                .description("Member/Team 변경으로 검색 캐시를 비운 횟수")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!event.contains(Member.class) && !event.contains(Team.class)) {
+            return;
+        }
+        clear(CacheConfig.MEMBER_SEARCH);
+        clear(CacheConfig.MEMBER_SEARCH_PAGE);
+        invalidations.increment();
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package study.ex_query_dsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * spring.datasource.replica.jdbc-url이 있을 때만 켜진다.
+ * - primaryDataSource : spring.datasource.*, spring.datasource.hikari.*
+ * - replicaDataSource : spring.datasource.replica.* (Hikari 설정 그대로, username/password 등이 없으면 primary 값)
+ * - dataSource(@Primary) : LazyConnectionDataSourceProxy(ReplicationRoutingDataSource)
+ * 풀 이름이 primary/replica라서 hikaricp.connections.* 메트릭이 pool 태그로 나뉜다.
+ *
+ * spring.jpa.open-in-view=false 여야 한다. OSIV면 요청 EntityManager가 첫 SQL에서 잡은 커넥션을 요청 끝까지 쓰므로
+ * 트랜잭션마다 라우팅되지 않는다. (먼저 읽고 나중에 쓰면 쓰기가 replica 커넥션으로 간다) 켜져 있으면 시작할 때 실패한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.replica", name = "jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    public ReplicaDataSourceConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        Assert.state(!openInView, "spring.jpa.open-in-view must be false when spring.datasource.replica is configured");
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicationRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(ReplicationRoutingDataSource.REPLICA);
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setUsername(properties.determineUsername());
+        dataSource.setPassword(properties.determinePassword());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 MeterRegistry meterRegistry) {
+        ReplicationRoutingDataSource routing = new ReplicationRoutingDataSource(meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReplicationRoutingDataSource.PRIMARY, primaryDataSource,
+                ReplicationRoutingDataSource.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * 쓰기가 커밋되면(EntityChangedEvent, 커밋한 스레드에서 발행된다) 이 스레드의 읽기를 primary로 고정한다.
+     */
+    @Bean
+    public ReadYourWritesGuard readYourWritesGuard(@Value("${replica.max-lag:5s}") Duration maxLag) {
+        return new ReadYourWritesGuard(maxLag);
+    }
+
+    //요청이 끝나면 고정을 푼다. (스레드가 재사용되니까)
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> readYourWritesFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                    throws ServletException, IOException {
+                ReplicationRoutingDataSource.clearPin();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    ReplicationRoutingDataSource.clearPin();
+                }
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    public static class ReadYourWritesGuard {
+        private final Duration maxLag;
+
+        public ReadYourWritesGuard(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        @EventListener
+        public void onEntityChanged(EntityChangedEvent event) {
+            ReplicationRoutingDataSource.pin(maxLag);
+        }
+    }
+}
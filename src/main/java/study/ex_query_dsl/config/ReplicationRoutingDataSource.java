@@ -0,0 +1,99 @@
+package study.ex_query_dsl.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * @Transactional(readOnly = true) 이면 replica, 나머지(쓰기 트랜잭션, 트랜잭션 밖)는 primary
+ * LazyConnectionDataSourceProxy로 감싸서 써야 한다. 트랜잭션이 시작될 때가 아니라 첫 SQL을 실행할 때 커넥션을 잡아야
+ * readOnly 여부가 정해진 뒤에 라우팅된다.
+ *
+ * read-your-writes : 이 스레드에서 쓰기를 커밋하면 pin() 되고, 그동안은 readOnly여도 primary로 간다.
+ * (replica에 아직 복제가 안 됐을 수 있으니까) 요청이 끝나거나 maxLag가 지나면 풀린다.
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    //primary로 고정되는 시각(nanoTime)
+    private static final ThreadLocal<Long> PINNED_UNTIL = new ThreadLocal<>();
+
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter pinnedRoutes;
+
+    public ReplicationRoutingDataSource(MeterRegistry meterRegistry) {
+        this.primaryRoutes = routeCounter(meterRegistry, PRIMARY, "write");
+        this.replicaRoutes = routeCounter(meterRegistry, REPLICA, "read-only");
+        this.pinnedRoutes = routeCounter(meterRegistry, PRIMARY, "read-your-writes");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        if (isPinned()) {
+            pinnedRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return REPLICA;
+    }
+
+    public static void pin(Duration maxLag) {
+        PINNED_UNTIL.set(System.nanoTime() + maxLag.toNanos());
+    }
+
+    public static boolean isPinned() {
+        Long until = PINNED_UNTIL.get();
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until > 0) {
+            PINNED_UNTIL.remove();
+            return false;
+        }
+        return true;
+    }
+
+    public static void clearPin() {
+        PINNED_UNTIL.remove();
+    }
+
+    /**
+     * 다른 스레드(PageExecutor의 count 등)에서도 호출한 스레드와 같은 곳으로 라우팅되게 한다.
+     *
+     * @return 원래 상태로 돌리는 Runnable
+     */
+    public static Runnable attachPin(Long pinnedUntil) {
+        Long previous = PINNED_UNTIL.get();
+        setOrRemove(pinnedUntil);
+        return () -> setOrRemove(previous);
+    }
+
+    public static Long pinnedUntil() {
+        return PINNED_UNTIL.get();
+    }
+
+    private static void setOrRemove(Long pinnedUntil) {
+        if (pinnedUntil == null) {
+            PINNED_UNTIL.remove();
+        } else {
+            PINNED_UNTIL.set(pinnedUntil);
+        }
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route, String reason) {
+        return Counter.builder("datasource.route")
+                .description("커넥션을 어느 DataSource로 보냈는지")
+                .tag("route", route)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,45 @@
+package study.ex_query_dsl.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * spring.threads.virtual.enabled=true 이면 Tomcat 요청, @Async, StreamingResponseBody(export)가 가상 스레드에서 돈다.
+ * 이때만 ConnectionLimitFilter로 동시에 DB를 쓰는 요청 수를 커넥션 풀 크기로 묶는다.
+ * (플랫폼 스레드일 때는 Tomcat 스레드 풀이 이미 상한 역할을 한다.)
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConnectionLimitFilter> connectionLimitFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout,
+            @Value("${querydsl.page.parallel:false}") boolean parallelPage,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        //페이지 조회를 병렬로 돌리면 요청 하나가 커넥션을 2개 쓴다. (PageExecutor)
+        int permits = Math.max(1, parallelPage ? poolSize / 2 : poolSize);
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(permits, Duration.ofMillis(connectionTimeout));
+
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("db.limiter.available", filter, ConnectionLimitFilter::getAvailablePermits)
+                    .register(registry);
+            Gauge.builder("db.limiter.waiting", filter, ConnectionLimitFilter::getQueueLength)
+                    .register(registry);
+        });
+
+        FilterRegistrationBean<ConnectionLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -1,16 +1,33 @@
 package study.ex_query_dsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.CountedPage;
+import study.ex_query_dsl.dto.MemberCursor;
+import study.ex_query_dsl.dto.MemberCursorResult;
 import study.ex_query_dsl.dto.MemberSearchCondition;
 import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.TableVersions;
 import study.ex_query_dsl.repository.MemberJpaRepository;
 import study.ex_query_dsl.repository.MemberRepository;
+import study.ex_query_dsl.repository.MemberTestRepository;
 
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -18,20 +35,99 @@ import java.util.List;
 public class MemberController {
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberTestRepository memberTestRepository;
+    private final ObjectMapper objectMapper;
+    private final TableVersions tableVersions;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int MAX_CURSOR_SIZE = 100;
 
+    /**
+     * 같은 요청을 계속 폴링하는 클라이언트용 조건부 GET
+     * Member/Team이 안 바뀌었으면(If-None-Match가 ETag와 같으면) 조회하지 않고 304 (notModified)
+     */
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * totalElements는 조건별로 캐시한 count (응답의 countMode)
+     * ex) /v2/members?teamName=teamA&count=EXACT 처럼 count로 바꿀 수 있다.
+     */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public CountedPage<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                                     @RequestParam(name = "count", defaultValue = "CACHED") CountMode countMode) {
+        return memberRepository.searchPageSimple(condition, pageable, countMode);
     }
 
+    /**
+     * totalElements는 추정값 ("약 1.2M건" 표시용, 응답의 countMode)
+     */
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public CountedPage<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                                     @RequestParam(name = "count", defaultValue = "ESTIMATED") CountMode countMode,
+                                                     WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+        return memberRepository.searchPageComplex(condition, pageable, countMode);
+    }
+
+    /**
+     * 무한 스크롤 : 전체 개수(count 쿼리) 없이 hasNext만
+     * ex) /v5/members?page=3&size=20
+     */
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSlice(condition, pageable);
+    }
+
+    /**
+     * 대용량 export
+     * 한 줄에 MemberTeamDto 하나씩(NDJSON) 바로 응답에 써서 결과가 몇 건이든 힙 사용량이 일정하다.
+     */
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMemberV1(MemberSearchCondition condition) {
+        StreamingResponseBody body = out -> memberTestRepository.exportSearch(condition, EXPORT_FETCH_SIZE, dto -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 키셋 페이징
+     * ex) /v4/members?size=20 -> 응답의 next를 그대로 붙여서 /v4/members?lastAge=30&lastMemberId=123&size=20
+     * size는 1~100, 벗어나면 400
+     */
+    @GetMapping("/v4/members")
+    public MemberCursorResult searchMemberV4(MemberSearchCondition condition, MemberCursor cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_CURSOR_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_CURSOR_SIZE);
+        }
+        return memberRepository.searchByCursor(condition, cursor, size);
+    }
+
+    /**
+     * ETag는 Member/Team 테이블 버전(TableVersions)이라서 검사하는 데 DB를 쓰지 않는다.
+     * 응답에는 ETag 헤더가 붙는다. 방금 바뀐 직후라 버전을 아직 못 믿으면 ETag 없이 그냥 조회한다.
+     */
+    private boolean notModified(WebRequest request) {
+        return tableVersions.etag(Member.class, Team.class)
+                .map(request::checkNotModified)
+                .orElse(false);
     }
 
 }
@@ -0,0 +1,33 @@
+package study.ex_query_dsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.ex_query_dsl.dto.TeamStatsDto;
+import study.ex_query_dsl.dto.TeamWithMembersDto;
+import study.ex_query_dsl.repository.TeamQueryRepository;
+import study.ex_query_dsl.repository.TeamStatsRepository;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+    private final TeamQueryRepository teamQueryRepository;
+    private final TeamStatsRepository teamStatsRepository;
+
+    @GetMapping("/v1/teams")
+    public Page<TeamWithMembersDto> searchTeamV1(Pageable pageable) {
+        return teamQueryRepository.findTeamsWithMembers(pageable);
+    }
+
+    /**
+     * 팀별 회원 수/나이 통계 (team_stats, 팀 수만큼만 읽는다)
+     */
+    @GetMapping("/v1/teams/stats")
+    public List<TeamStatsDto> teamStatsV1() {
+        return teamStatsRepository.findAll();
+    }
+}
@@ -0,0 +1,10 @@
+package study.ex_query_dsl.dto;
+
+/**
+ * 페이지 전체 개수(totalElements)를 어떻게 구했는지 (MemberCountStrategy)
+ */
+public enum CountMode {
+    EXACT,     //count 쿼리 (또는 content만 보고 알 수 있는 경우)
+    CACHED,    //조건별로 TTL 동안 캐시한 count. Member/Team이 바뀌면 버린다.
+    ESTIMATED  //테이블 통계 + 샘플로 추정한 값. "약 1.2M건" 표시용
+}
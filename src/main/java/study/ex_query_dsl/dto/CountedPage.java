@@ -0,0 +1,19 @@
+package study.ex_query_dsl.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+/**
+ * totalElements를 어떤 방법으로 구했는지(countMode)가 같이 나가는 Page
+ * ESTIMATED면 totalElements/totalPages는 근사값이다.
+ */
+@Getter
+public class CountedPage<T> extends PageImpl<T> {
+    private final CountMode countMode;
+
+    public CountedPage(Page<T> page, CountMode countMode) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.countMode = countMode;
+    }
+}
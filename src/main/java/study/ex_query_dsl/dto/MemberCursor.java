@@ -0,0 +1,22 @@
+package study.ex_query_dsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 키셋(seek) 페이징용 커서
+ * 직전 페이지의 마지막 (age, memberId)를 기억해두고, 그 다음 행부터 조회한다.
+ * 둘 다 null이면 첫 페이지
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberCursor {
+    private Integer lastAge;
+    private Long lastMemberId;
+
+    public boolean isFirst() {
+        return lastAge == null || lastMemberId == null;
+    }
+}
@@ -0,0 +1,12 @@
+package study.ex_query_dsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberCursorResult {
+    private final List<MemberTeamDto> content;
+    private final MemberCursor next; //다음 페이지 요청 시 그대로 넘기면 된다. 마지막 페이지면 null
+    private final boolean hasNext;
+}
@@ -2,6 +2,8 @@ package study.ex_query_dsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
@@ -9,4 +11,48 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    //텍스트 검색 (MemberTextIndex, 대소문자 무시) : 회원명 앞부분/포함/오타 허용, 팀명 앞부분
+    private String usernamePrefix;
+    private String usernameContains;
+    private String usernameFuzzy;
+    private String teamNamePrefix;
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+
+    /**
+     * 어떤 조건이 들어왔는지를 4비트로 표현한다. (값은 보지 않는다.)
+     * 같은 shape면 만들어지는 쿼리 모양이 같다.
+     */
+    public int shapeMask() {
+        int mask = 0;
+        if (hasText(username)) mask |= USERNAME;
+        if (hasText(teamName)) mask |= TEAM_NAME;
+        if (ageGoe != null) mask |= AGE_GOE;
+        if (ageLoe != null) mask |= AGE_LOE;
+        return mask;
+    }
+
+    public boolean hasTextSearch() {
+        return hasText(usernamePrefix) || hasText(usernameContains) || hasText(usernameFuzzy) || hasText(teamNamePrefix);
+    }
+
+    /**
+     * 캐시 키용
+     * 검색에서 어차피 무시되는 빈 문자열을 null로 바꿔서 같은 검색이 같은 키가 되게 한다.
+     */
+    public MemberSearchCondition normalize() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(hasText(username) ? username : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        normalized.setUsernamePrefix(hasText(usernamePrefix) ? usernamePrefix : null);
+        normalized.setUsernameContains(hasText(usernameContains) ? usernameContains : null);
+        normalized.setUsernameFuzzy(hasText(usernameFuzzy) ? usernameFuzzy : null);
+        normalized.setTeamNamePrefix(hasText(teamNamePrefix) ? teamNamePrefix : null);
+        return normalized;
+    }
 }
@@ -21,4 +21,10 @@ public class MemberTeamDto {
         this.teamName = teamName;
     }
 
+    //팀 이름은 조인하지 않고 TeamNameDictionary에서 채운다.
+    @QueryProjection
+    public MemberTeamDto(Long memberId, String username, int age, Long teamId) {
+        this(memberId, username, age, teamId, null);
+    }
+
 }
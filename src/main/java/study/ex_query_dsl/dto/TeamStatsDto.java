@@ -0,0 +1,32 @@
+package study.ex_query_dsl.dto;
+
+import lombok.Data;
+import study.ex_query_dsl.entity.TeamStats;
+
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private Double avgAge;
+    private Integer minAge;
+    private Integer maxAge;
+    private long[] ageHistogram;
+
+    //통계 행이 없는 팀(회원이 한 명도 없었던 팀)은 stats가 null
+    public TeamStatsDto(Long teamId, String teamName, TeamStats stats) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.ageHistogram = new long[TeamStats.BUCKETS];
+        if (stats != null) {
+            this.memberCount = stats.getMemberCount();
+            this.ageSum = stats.getAgeSum();
+            this.avgAge = stats.getMemberCount() > 0 ? (double) stats.getAgeSum() / stats.getMemberCount() : null;
+            this.minAge = stats.getMinAge();
+            this.maxAge = stats.getMaxAge();
+            this.ageHistogram = stats.getAgeHistogram();
+        }
+    }
+}
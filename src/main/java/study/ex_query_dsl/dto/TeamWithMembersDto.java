@@ -0,0 +1,22 @@
+package study.ex_query_dsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class TeamWithMembersDto {
+
+    private Long teamId;
+    private String name;
+    private List<MemberDto> members = new ArrayList<>();
+
+    //팀 페이지를 먼저 조회하고, 회원은 팀 id로 한 번에 조회해서 채운다. (TeamQueryRepository)
+    @QueryProjection
+    public TeamWithMembersDto(Long teamId, String name) {
+        this.teamId = teamId;
+        this.name = name;
+    }
+}
@@ -2,15 +2,26 @@ package study.ex_query_dsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //2차 캐시 : em.find(Member.class, id)
 @Getter
 @Setter //실무에서는 쓰지 말기
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of =  {"id", "username", "age"}) //단 연관관계 필드는 집어넣지 말기
+@Table(indexes = {
+        @Index(name = "idx_member_age_id", columnList = "age, member_id"), //키셋 페이징용 (정렬키, id), ageGoe/ageLoe 범위 검색
+        @Index(name = "idx_member_username", columnList = "username"), //usernameEq
+        @Index(name = "idx_member_team_age", columnList = "team_id, age") //팀으로 조인/필터 + 팀 안에서 나이 범위
+})
 public class Member {
 
-    @Id @GeneratedValue
+    //pooled 시퀀스 : allocationSize만큼 id를 한 번에 받아와서 insert마다 시퀀스를 조회하지 않는다.
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 100)
     @Column(name = "member_id")
     private Long id;
     private String username;
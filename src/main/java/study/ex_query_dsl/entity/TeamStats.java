@@ -0,0 +1,52 @@
+package study.ex_query_dsl.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * 팀별 회원 통계 (회원 수, 나이 합/최소/최대, 10살 단위 나이 분포)
+ * Member가 저장/수정/삭제될 때 TeamStatsListener가 변화량만 반영한다. (groupBy 전체 스캔 대신)
+ * JDBC로만 쓰고 JPA로는 읽기만 한다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"teamId", "memberCount", "ageSum", "minAge", "maxAge"})
+@Table(name = "team_stats")
+public class TeamStats {
+    public static final int BUCKETS = 10;
+
+    @Id
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+    private Integer minAge;
+    private Integer maxAge;
+
+    //bucketN : N*10 ~ N*10+9살, bucket0은 10살 미만, bucket9는 90살 이상
+    private long bucket0;
+    private long bucket1;
+    private long bucket2;
+    private long bucket3;
+    private long bucket4;
+    private long bucket5;
+    private long bucket6;
+    private long bucket7;
+    private long bucket8;
+    private long bucket9;
+
+    public static int bucket(int age) {
+        return Math.min(Math.max(age / 10, 0), BUCKETS - 1);
+    }
+
+    public long[] getAgeHistogram() {
+        return new long[]{bucket0, bucket1, bucket2, bucket3, bucket4, bucket5, bucket6, bucket7, bucket8, bucket9};
+    }
+}
@@ -0,0 +1,89 @@
+package study.ex_query_dsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 트랜잭션 안에서 바뀐 엔티티 타입을 모아뒀다가 커밋이 끝나면 EntityChangedEvent를 한 번만 발행한다.
+ * 롤백되면 아무것도 발행하지 않는다.
+ * 트랜잭션 밖에서 바뀌면(벌크 연산 등) 바로 발행한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityChangeTracker {
+    private final ApplicationEventPublisher publisher;
+
+    public void changed(Class<?> entityType) {
+        record(entityType, false, false);
+    }
+
+    /**
+     * 벌크 연산(JPQL update/delete)으로 바뀐 경우. 행 단위 이벤트가 없으니 행을 따라가는 쪽(MemberColumnarIndex)은 다시 읽어야 한다.
+     */
+    public void changedByStatement(Class<?> entityType) {
+        record(entityType, true, false);
+    }
+
+    /**
+     * 벌크 연산으로 인덱스가 따라가는 컬럼(회원명, 팀명 등)이 바뀐 경우. 텍스트 인덱스까지 통째로 다시 읽어야 한다.
+     * 나이만 바꾸거나 지우는 벌크 연산은 changedByStatement()로 충분하다.
+     */
+    public void changedInBulk(Class<?> entityType) {
+        record(entityType, true, true);
+    }
+
+    private void record(Class<?> entityType, boolean statement, boolean bulk) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publisher.publishEvent(new EntityChangedEvent(Set.of(entityType),
+                    statement ? Set.of(entityType) : Set.of(), bulk ? Set.of(entityType) : Set.of()));
+            return;
+        }
+        PendingChanges pending = currentPendingChanges();
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entityTypes.add(entityType);
+        if (statement) {
+            pending.statementEntityTypes.add(entityType);
+        }
+        if (bulk) {
+            pending.bulkEntityTypes.add(entityType);
+        }
+    }
+
+    /**
+     * 현재 트랜잭션에서 아직 커밋되지 않은 변경이 있는지
+     */
+    public boolean hasPendingChanges() {
+        return TransactionSynchronizationManager.isSynchronizationActive() && currentPendingChanges() != null;
+    }
+
+    //REQUIRES_NEW로 트랜잭션이 중첩되면 동기화 목록도 트랜잭션마다 따로 잡힌다.
+    private PendingChanges currentPendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        return null;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final Set<Class<?>> entityTypes = new HashSet<>();
+        private final Set<Class<?>> statementEntityTypes = new HashSet<>();
+        private final Set<Class<?>> bulkEntityTypes = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            publisher.publishEvent(new EntityChangedEvent(Set.copyOf(entityTypes), Set.copyOf(statementEntityTypes),
+                    Set.copyOf(bulkEntityTypes)));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package study.ex_query_dsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+/**
+ * 트랜잭션이 커밋된 뒤에 한 번 발행된다.
+ * 어떤 엔티티 타입(테이블)이 바뀌었는지만 담는다.
+ */
+@Getter
+@ToString
+public class EntityChangedEvent {
+    private final Set<Class<?>> entityTypes;
+    //그중 벌크 연산(JPQL update/delete)으로 바뀐 타입. 어떤 행이 바뀌었는지는 알 수 없다.
+    private final Set<Class<?>> statementEntityTypes;
+    //그중 벌크 연산으로 인덱스 컬럼(회원명, 팀명)이 바뀐 타입
+    private final Set<Class<?>> bulkEntityTypes;
+
+    public EntityChangedEvent(Set<Class<?>> entityTypes) {
+        this(entityTypes, Set.of(), Set.of());
+    }
+
+    public EntityChangedEvent(Set<Class<?>> entityTypes, Set<Class<?>> statementEntityTypes, Set<Class<?>> bulkEntityTypes) {
+        this.entityTypes = entityTypes;
+        this.statementEntityTypes = statementEntityTypes;
+        this.bulkEntityTypes = bulkEntityTypes;
+    }
+
+    public boolean contains(Class<?> entityType) {
+        return entityTypes.contains(entityType);
+    }
+
+    public boolean containsStatement(Class<?> entityType) {
+        return statementEntityTypes.contains(entityType);
+    }
+
+    public boolean containsBulk(Class<?> entityType) {
+        return bulkEntityTypes.contains(entityType);
+    }
+}
@@ -0,0 +1,70 @@
+package study.ex_query_dsl.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 엔티티 타입(테이블)별 변경 버전
+ * EntityChangedEvent(커밋 후, Hibernate insert/update/delete와 벌크 execute() 모두)마다 1씩 올라간다.
+ * 조회 결과의 ETag로 쓴다. 버전이 같으면 테이블을 다시 읽지 않아도 결과가 같다.
+ *
+ * - 버전은 메모리에만 있으므로 재시작하면 0부터 다시 센다. 그래서 ETag에 기동 시각(epoch)을 넣는다.
+ * - 바뀐 직후 settle 동안은 ETag를 만들지 않는다. 메모리 인덱스/캐시가 stale로 바뀌기 전이나
+ *   replica에 아직 복제되기 전의 결과에 새 버전 ETag가 붙으면, 다음 변경까지 계속 304로 옛날 결과를 보게 된다.
+ *   (replica가 있으면 replica.max-lag보다 짧게 잡지 않는다.)
+ * - 이 서버를 거치지 않은 변경(다른 인스턴스, 직접 SQL)은 모른다.
+ */
+@Component
+public class TableVersions {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Duration settle;
+    private volatile long lastChangedNanos = System.nanoTime();
+
+    public TableVersions(@Value("${etag.settle:1s}") Duration settle,
+                         @Value("${spring.datasource.replica.jdbc-url:}") String replicaUrl,
+                         @Value("${replica.max-lag:5s}") Duration replicaMaxLag) {
+        this.settle = hasText(replicaUrl) && replicaMaxLag.compareTo(settle) > 0 ? replicaMaxLag : settle;
+    }
+
+    public long version(Class<?> entityType) {
+        AtomicLong version = versions.get(entityType);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * 버전을 읽은 다음에 조회해야 한다. 조회 중에 바뀌면 옛날 버전 ETag가 붙으니 다음 요청에서 다시 받아간다.
+     *
+     * @return entityTypes 버전으로 만든 weak ETag. 방금 바뀌어서 아직 믿을 수 없으면 empty
+     */
+    public Optional<String> etag(Class<?>... entityTypes) {
+        StringBuilder etag = new StringBuilder("W/\"").append(epoch);
+        for (Class<?> entityType : entityTypes) {
+            etag.append('-').append(version(entityType));
+        }
+        //버전을 먼저 읽고 나서 본다. (onEntityChanged는 반대 순서로 쓴다)
+        if (System.nanoTime() - lastChangedNanos < settle.toNanos()) {
+            return Optional.empty();
+        }
+        return Optional.of(etag.append('"').toString());
+    }
+
+    //다른 리스너(인덱스, 캐시)보다 먼저 settle을 시작한다.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        lastChangedNanos = System.nanoTime();
+        event.getEntityTypes().forEach(type -> versions.computeIfAbsent(type, k -> new AtomicLong()).incrementAndGet());
+    }
+}
@@ -0,0 +1,423 @@
+package study.ex_query_dsl.fulltext;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangeTracker;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * 회원명/팀명 텍스트 검색용 Lucene 인덱스
+ * usernameEq는 = 비교라 "앞부분/포함" 검색은 like '%x%' 풀스캔이 된다.
+ * Lucene에서 조건에 맞는 id만 찾고, DB에는 member.id in (...) / member.team.id in (...) 로 붙인다.
+ * (나머지 조건, 페이징, 정렬은 그대로 Querydsl)
+ *
+ * - 문서 : 회원(id, username), 팀(id, name). 이름은 소문자로 바꿔서 넣는다. (대소문자 무시)
+ * - 포함 검색은 이름의 1~3글자 조각(n-gram)을 따로 넣어두고 조각 term으로 찾는다.
+ *   ("*x*" wildcard는 term 사전 전체를 훑어서 이름 종류 수만큼 느리다) 이름 길이의 약 3배만큼 term이 늘어난다.
+ * - 동기화 : 커밋이 끝난 뒤 MemberTextIndexListener가 행 단위로 반영한다. 이름을 바꾸는 벌크 연산은 통째로 다시 만든다.
+ *   나이만 바꾸거나 지우는 벌크 연산(MemberBulkRepository)은 이름이 그대로라 인덱스를 건드리지 않는다.
+ * - 인덱스를 쓸 수 없으면(다시 만드는 중, 현재 트랜잭션에 커밋 안 된 변경이 있음) DB like로 조회한다.
+ *   찾은 id가 max-hits보다 많아도 in 절이 너무 커지니 like로 조회한다. (fuzzy는 점수 높은 max-hits개만)
+ * - 지워진 회원의 문서가 잠깐 남아 있어도 DB에 다시 붙일 때 걸러지므로 결과는 틀리지 않는다.
+ * - 다시 만드는 동안 들어온 행 단위 변경은 모아뒀다가 다 만든 뒤에 덮어쓴다. (DB에서 읽은 예전 값이 이기지 않게)
+ *   다시 만드는 도중에 또 벌크 연산이 있으면(generation이 바뀌면) 그 결과로는 ready가 되지 않고 한 번 더 만든다.
+ */
+@Slf4j
+@Component
+public class MemberTextIndex {
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String NAME = "name";
+    private static final String NAME_GRAM = "name_gram";
+    private static final int GRAM = 3;
+    //BooleanQuery 절 수 제한(1024)에 한참 못 미치게. 나머지 조각은 DB에서 다시 확인할 때 걸러진다.
+    private static final int MAX_QUERY_GRAMS = 64;
+    private static final String ID = "id";
+    private static final String MEMBER = "member";
+    private static final String TEAM = "team";
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityChangeTracker entityChangeTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxHits;
+    private final int fuzzyEdits;
+
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    //벌크 연산마다 올라간다. 다시 만들기를 시작할 때 값과 끝날 때 값이 같아야 ready가 된다.
+    private final AtomicLong generation = new AtomicLong();
+    //update/delete, 다시 만들기의 시작/끝, ready 변경은 이 락 안에서
+    private final Object lock = new Object();
+    //다시 만드는 중에만 null이 아니다. KEY -> 문서 (삭제면 null)
+    private Map<String, Document> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public MemberTextIndex(JPAQueryFactory queryFactory, EntityChangeTracker entityChangeTracker,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${member.text-index.enabled:true}") boolean enabled,
+                           @Value("${member.text-index.path:}") String path,
+                           @Value("${member.text-index.max-hits:10000}") int maxHits,
+                           @Value("${member.text-index.fuzzy-edits:2}") int fuzzyEdits) {
+        this.queryFactory = queryFactory;
+        this.entityChangeTracker = entityChangeTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.maxHits = maxHits;
+        this.fuzzyEdits = fuzzyEdits;
+        try {
+            this.directory = hasText(path) ? FSDirectory.open(Path.of(path)) : new ByteBuffersDirectory();
+            this.writer = new IndexWriter(directory, new IndexWriterConfig());
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 텍스트 조건 전부를 and로 묶은 것. 텍스트 조건이 없으면 null (where에 그대로 넣으면 된다)
+     */
+    public BooleanExpression matches(MemberSearchCondition condition) {
+        return Expressions.allOf(
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
+                usernameFuzzy(condition.getUsernameFuzzy()),
+                teamNameStartsWith(condition.getTeamNamePrefix()));
+    }
+
+    public BooleanExpression usernameStartsWith(String prefix) {
+        if (!hasText(prefix)) {
+            return null;
+        }
+        return memberIdIn(new PrefixQuery(new Term(NAME, normalize(prefix))), false,
+                () -> member.username.startsWithIgnoreCase(prefix));
+    }
+
+    public BooleanExpression usernameContains(String text) {
+        if (!hasText(text)) {
+            return null;
+        }
+        //GRAM보다 긴 검색어는 조각이 다 들어 있어도 이어져 있지 않을 수 있어서 DB에서 한 번 더 본다. (in으로 좁힌 행만)
+        return search(MEMBER, containsQuery(normalize(text)), false)
+                .map(ids -> member.id.in(ids).and(member.username.containsIgnoreCase(text)))
+                .orElseGet(() -> member.username.containsIgnoreCase(text));
+    }
+
+    //GRAM 글자 이하면 조각 하나가 곧 검색어, 더 길면 검색어의 GRAM 글자 조각이 전부 들어 있는 이름
+    private static Query containsQuery(String text) {
+        if (text.length() <= GRAM) {
+            return new TermQuery(new Term(NAME_GRAM, text));
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length() && grams.size() < MAX_QUERY_GRAMS; i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        grams.forEach(gram -> query.add(new TermQuery(new Term(NAME_GRAM, gram)), BooleanClause.Occur.FILTER));
+        return query.build();
+    }
+
+    /**
+     * 오타 허용 (편집 거리 fuzzy-edits 이내). DB로는 할 수 없어서 인덱스를 못 쓰면 대소문자만 무시하고 같은 것.
+     */
+    public BooleanExpression usernameFuzzy(String text) {
+        if (!hasText(text)) {
+            return null;
+        }
+        return memberIdIn(new FuzzyQuery(new Term(NAME, normalize(text)), fuzzyEdits), true,
+                () -> member.username.equalsIgnoreCase(text));
+    }
+
+    public BooleanExpression teamNameStartsWith(String prefix) {
+        if (!hasText(prefix)) {
+            return null;
+        }
+        //team 조인 없이 member.team_id로 건다. (TeamNameDictionary.teamNameEq와 같은 방식)
+        return search(TEAM, new PrefixQuery(new Term(NAME, normalize(prefix))), false)
+                .map(ids -> member.team.id.in(ids))
+                .orElseGet(() -> member.team.id.in(JPAExpressions
+                        .select(team.id)
+                        .from(team)
+                        .where(team.name.startsWithIgnoreCase(prefix))));
+    }
+
+    private BooleanExpression memberIdIn(Query query, boolean bestOnly, Supplier<BooleanExpression> fallback) {
+        return search(MEMBER, query, bestOnly)
+                .map(ids -> member.id.in(ids))
+                .orElseGet(fallback);
+    }
+
+    /**
+     * @param bestOnly true면 max-hits를 넘어도 점수 높은 것만 돌려준다. false면 넘는 순간 포기(empty)
+     * @return 인덱스를 쓸 수 없으면 empty
+     */
+    private Optional<List<Long>> search(String type, Query query, boolean bestOnly) {
+        if (!enabled || !ready || entityChangeTracker.hasPendingChanges()) {
+            return Optional.empty();
+        }
+        Query typed = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(TYPE, type)), BooleanClause.Occur.FILTER)
+                .add(query, BooleanClause.Occur.MUST)
+                .build();
+        try {
+            if (dirty.getAndSet(false)) {
+                searcherManager.maybeRefreshBlocking();
+            }
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(typed, bestOnly ? maxHits : maxHits + 1);
+                if (!bestOnly && top.scoreDocs.length > maxHits) {
+                    return Optional.empty();
+                }
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> ids = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    ids.add(storedFields.document(scoreDoc.doc).getField(ID).numericValue().longValue());
+                }
+                //검색하는 도중에 다시 만들기가 시작됐으면 반쯤 지워진 인덱스였을 수 있다.
+                return ready ? Optional.of(ids) : Optional.empty();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void indexMember(Long id, String username) {
+        update(MEMBER, id, username);
+    }
+
+    void indexTeam(Long id, String name) {
+        update(TEAM, id, name);
+    }
+
+    void deleteMember(Long id) {
+        delete(MEMBER, id);
+    }
+
+    void deleteTeam(Long id) {
+        delete(TEAM, id);
+    }
+
+    private void update(String type, Long id, String name) {
+        if (enabled) {
+            apply(type + ":" + id, document(type, id, name));
+        }
+    }
+
+    private void delete(String type, Long id) {
+        if (enabled) {
+            apply(type + ":" + id, null);
+        }
+    }
+
+    private void apply(String key, Document document) {
+        synchronized (lock) {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(key, document);
+                return;
+            }
+            write(key, document);
+        }
+        dirty.set(true);
+    }
+
+    private void write(String key, Document document) {
+        try {
+            if (document == null) {
+                writer.deleteDocuments(new Term(KEY, key));
+            } else {
+                writer.updateDocument(new Term(KEY, key), document);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Document document(String type, Long id, String name) {
+        Document document = new Document();
+        document.add(new StringField(KEY, type + ":" + id, Field.Store.NO));
+        document.add(new StringField(TYPE, type, Field.Store.NO));
+        if (name != null) {
+            String normalized = normalize(name);
+            document.add(new StringField(NAME, normalized, Field.Store.NO));
+            for (String gram : grams(normalized)) {
+                document.add(new StringField(NAME_GRAM, gram, Field.Store.NO));
+            }
+        }
+        document.add(new StoredField(ID, id));
+        return document;
+    }
+
+    //1~GRAM 글자 조각 전부 ex) "bob" -> b, o, bo, ob, bob
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= name.length(); i++) {
+                grams.add(name.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    //이름을 바꾼 벌크 연산은 어떤 행이 바뀌었는지 모르니 통째로 다시 만든다.
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!enabled || !(event.containsBulk(Member.class) || event.containsBulk(Team.class))) {
+            return;
+        }
+        synchronized (lock) {
+            generation.incrementAndGet();
+            ready = false;
+        }
+        if (rebuildRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildRequested.set(false);
+                //그 사이 rebuild()를 직접 불러서 이미 다시 만들었으면 건너뛴다. (벌크 연산은 ready부터 내린다)
+                if (ready) {
+                    return;
+                }
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("member text index rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * DB 전체를 다시 읽어서 만든다. 다 만들 때까지는 DB like로 조회한다.
+     */
+    public synchronized void rebuild() {
+        long rebuildingGeneration;
+        synchronized (lock) {
+            rebuildingGeneration = generation.get();
+            ready = false;
+            changesDuringRebuild = new LinkedHashMap<>();
+        }
+        boolean built = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    writer.deleteAll();
+                    try (Stream<Tuple> teams = queryFactory.select(team.id, team.name).from(team).stream()) {
+                        for (Tuple row : (Iterable<Tuple>) teams::iterator) {
+                            write(TEAM + ":" + row.get(team.id), document(TEAM, row.get(team.id), row.get(team.name)));
+                        }
+                    }
+                    try (Stream<Tuple> members = queryFactory.select(member.id, member.username).from(member).stream()) {
+                        for (Tuple row : (Iterable<Tuple>) members::iterator) {
+                            write(MEMBER + ":" + row.get(member.id), document(MEMBER, row.get(member.id), row.get(member.username)));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            built = true;
+        } finally {
+            synchronized (lock) {
+                //DB에서 읽은 값보다 그동안 커밋된 행 단위 변경이 최신이다.
+                changesDuringRebuild.forEach(this::write);
+                changesDuringRebuild = null;
+                try {
+                    writer.commit();
+                    searcherManager.maybeRefreshBlocking();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                //실패했거나 도중에 벌크 연산이 있었으면 DB like로 계속 조회한다. (다음 다시 만들기는 이미 요청돼 있다)
+                ready = built && rebuildingGeneration == generation.get();
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        executor.close();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
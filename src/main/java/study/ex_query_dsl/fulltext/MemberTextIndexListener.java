@@ -0,0 +1,88 @@
+package study.ex_query_dsl.fulltext;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+/**
+ * Member/Team이 insert/update/delete 된 트랜잭션이 커밋되면 MemberTextIndex에 한 건씩 반영한다.
+ * 롤백되면 아무것도 하지 않는다. (POST_COMMIT_* 이벤트)
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberTextIndexListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberTextIndex memberTextIndex;
+
+    @PostConstruct
+    public void register() {
+        if (!memberTextIndex.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        index(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        index(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member m) {
+            memberTextIndex.deleteMember(m.getId());
+        } else if (event.getEntity() instanceof Team t) {
+            memberTextIndex.deleteTeam(t.getId());
+        }
+    }
+
+    private void index(Object entity) {
+        if (entity instanceof Member m) {
+            memberTextIndex.indexMember(m.getId(), m.getUsername());
+        } else if (entity instanceof Team t) {
+            memberTextIndex.indexTeam(t.getId(), t.getName());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Member.class || type == Team.class;
+    }
+}
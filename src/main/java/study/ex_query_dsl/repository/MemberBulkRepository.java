@@ -0,0 +1,156 @@
+package study.ex_query_dsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.dml.DMLClause;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.fulltext.MemberTextIndex;
+import study.ex_query_dsl.repository.support.Querydsl4RepositorySupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * 벌크 연산
+ * 한 번에 수백만 건을 update/delete 하면 트랜잭션 하나가 락을 오래 잡고 undo도 엄청 쌓인다.
+ * member_id 범위(chunk)로 잘라서 chunk마다 짧은 트랜잭션(REQUIRES_NEW)으로 실행한다.
+ *
+ * 벌크 연산은 영속성 컨텍스트를 무시하고 DB에 바로 나가기 때문에 원래는 em.flush(); em.clear();를 해야 하는데,
+ * clear()는 상관없는 엔티티까지 다 날린다. 여기서는 호출한 쪽 영속성 컨텍스트에서
+ * 해당 chunk 범위의 Member만 골라서 detach 한다. (detach된 Member의 변경 내용은 버려진다.)
+ *
+ * 주의) 호출한 쪽 트랜잭션에서 수정 중인 Member가 있으면 chunk 트랜잭션이 그 락을 기다리므로,
+ * 쓰기 트랜잭션 밖에서 호출하자.
+ */
+@Repository
+public class MemberBulkRepository extends Querydsl4RepositorySupport {
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final TransactionTemplate chunkTransaction;
+    private final TeamStatsRepository teamStatsRepository;
+    private final MemberTextIndex memberTextIndex;
+
+    public MemberBulkRepository(PlatformTransactionManager transactionManager, TeamStatsRepository teamStatsRepository,
+                                MemberTextIndex memberTextIndex) {
+        super(Member.class);
+        this.teamStatsRepository = teamStatsRepository;
+        this.memberTextIndex = memberTextIndex;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 조건에 맞는 회원 나이를 delta만큼 더한다.
+     *
+     * @return 바뀐 행 수
+     */
+    public long addAge(MemberSearchCondition condition, int delta, int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        return executeInChunks(chunkSize, condition, where -> update(member)
+                .set(member.age, member.age.add(delta))
+                .where(where));
+    }
+
+    /**
+     * @return 지운 행 수
+     */
+    public long delete(MemberSearchCondition condition, int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        return executeInChunks(chunkSize, condition, where -> delete(member)
+                .where(where));
+    }
+
+    private long executeInChunks(int chunkSize, MemberSearchCondition condition, Function<Predicate[], DMLClause<?>> clause) {
+        //fuzzy는 점수 높은 max-hits개만 찾거나(인덱스) 대소문자만 무시하고 같은 것(DB)이라 지울 대상을 정하는 데 쓰면 안 된다.
+        Assert.isTrue(!hasText(condition.getUsernameFuzzy()), "usernameFuzzy is not supported for bulk operations");
+        Tuple bounds = select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne();
+        Long minId = bounds == null ? null : bounds.get(0, Long.class);
+        Long maxId = bounds == null ? null : bounds.get(1, Long.class);
+        if (minId == null) {
+            return 0;
+        }
+
+        Session callerSession = callerSession();
+        long affected = 0;
+        for (long from = minId; from <= maxId; from += chunkSize) {
+            long to = Math.min(maxId, from + chunkSize - 1);
+            Predicate[] where = {
+                    member.id.between(from, to),
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe()),
+                    //chunk마다 다시 찾는다. (나이 변경/삭제는 인덱스를 다시 만들지 않으므로 계속 인덱스로 찾는다)
+                    memberTextIndex.matches(condition)
+            };
+            long chunkFrom = from;
+            //벌크 연산은 TeamStatsListener를 거치지 않으므로 chunk 구간의 전후 팀별 집계 차이를 반영한다.
+            Long chunkAffected = chunkTransaction.execute(status ->
+                    teamStatsRepository.applyRangeChange(chunkFrom, to, () -> execute(clause.apply(where))));
+            affected += chunkAffected;
+            if (callerSession != null && chunkAffected > 0) {
+                detachMembers(callerSession, from, to);
+            }
+        }
+        return affected;
+    }
+
+    //chunk 트랜잭션이 열리기 전에, 호출한 쪽 트랜잭션의 세션을 잡아둔다.
+    private Session callerSession() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        return getEntityManager().unwrap(Session.class);
+    }
+
+    private void detachMembers(Session session, long fromId, long toId) {
+        List<Member> stale = new ArrayList<>();
+        SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : sessionImplementor.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member found && found.getId() != null
+                    && found.getId() >= fromId && found.getId() <= toId) {
+                stale.add(found);
+            }
+        }
+        stale.forEach(session::detach);
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    //벌크 update/delete는 조인을 못 하므로 팀 이름은 서브쿼리로 거른다.
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName)
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)))
+                : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
@@ -3,14 +3,21 @@ package study.ex_query_dsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import study.ex_query_dsl.columnar.MemberColumnarIndex;
+import study.ex_query_dsl.config.CacheConfig;
 import study.ex_query_dsl.dto.MemberSearchCondition;
 import study.ex_query_dsl.dto.MemberTeamDto;
 import study.ex_query_dsl.dto.QMemberTeamDto;
 import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.fulltext.MemberTextIndex;
 
 
 import java.util.List;
@@ -19,14 +26,22 @@ import java.util.Optional;
 import static org.springframework.util.StringUtils.*;
 import static study.ex_query_dsl.entity.QMember.*;
 import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.repository.support.JoinElimination.leftJoinIfUsed;
 
 @Repository
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamNameDictionary teamNameDictionary;
+    private final MemberColumnarIndex memberColumnarIndex;
+    private final MemberTextIndex memberTextIndex;
 
-    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, TeamNameDictionary teamNameDictionary,
+                               MemberColumnarIndex memberColumnarIndex, MemberTextIndex memberTextIndex) {
         this.em = em;
+        this.teamNameDictionary = teamNameDictionary;
+        this.memberColumnarIndex = memberColumnarIndex;
+        this.memberTextIndex = memberTextIndex;
         //1번 방법
 //        this.queryFactory = new JPAQueryFactory(em); //Bean으로 등록하면 parameter로 받아도 된다. (지금은 mainApp에서 등록함)
         //2번 방법
@@ -37,28 +52,34 @@ public class MemberJpaRepository {
         em.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         //문자열로 짜서 오류가 나타날 가능성이 높다.
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
         return queryFactory.selectFrom(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
+                .setHint(HibernateHints.HINT_CACHEABLE, true) //쿼리 캐시
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory.selectFrom(member)
                 .where(member.username.eq(username))
@@ -68,6 +89,7 @@ public class MemberJpaRepository {
     /**
      * Builder
      */
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 
         BooleanBuilder builder = new BooleanBuilder();
@@ -84,7 +106,7 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                     member.id.as("memberId"),
                     member.username,
@@ -93,29 +115,41 @@ public class MemberJpaRepository {
                     team.name.as("teamName")
                 ))
                 .from(member)
-                .leftJoin(member.team, team)
-                .where(builder)
-                .fetch();
+                .where(builder);
+        return leftJoinIfUsed(query, member.team, team).fetch();
     }
 
+    /**
+     * 팀 이름 조건과 결과의 팀 이름은 TeamNameDictionary로 처리해서 team 조인을 하지 않는다.
+     * member.team.id는 FK 컬럼이라 조인 없이 읽힌다.
+     */
+    @Cacheable(cacheNames = CacheConfig.MEMBER_SEARCH, key = "#condition.normalize()",
+            condition = "!@entityChangeTracker.hasPendingChanges()")
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        //member.index.enabled=true 이고 인덱스가 최신이면 DB에 가지 않는다.
+        Optional<List<MemberTeamDto>> indexed = memberColumnarIndex.search(condition);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        List<MemberTeamDto> result = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
+                        member.team.id.as("teamId")
                 ))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
                 )
                 .fetch();
+        teamNameDictionary.fillTeamNames(result);
+        return result;
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -124,6 +158,9 @@ public class MemberJpaRepository {
     private BooleanExpression teamNameEq(String teamName) {
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
+    private BooleanExpression teamIdEq(String teamName) {
+        return hasText(teamName) ? teamNameDictionary.teamNameEq(teamName) : null;
+    }
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
     }
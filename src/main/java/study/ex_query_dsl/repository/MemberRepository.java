@@ -1,13 +1,19 @@
 package study.ex_query_dsl.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.transaction.annotation.Transactional;
 import study.ex_query_dsl.entity.Member;
 
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
     //select m from Member m where m.username = ?
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true")) //쿼리 캐시
+    @Transactional(readOnly = true)
     List<Member> findByUsername(String username);
 
 }
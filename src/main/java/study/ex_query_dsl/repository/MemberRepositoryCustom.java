@@ -2,6 +2,11 @@ package study.ex_query_dsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.CountedPage;
+import study.ex_query_dsl.dto.MemberCursor;
+import study.ex_query_dsl.dto.MemberCursorResult;
 import study.ex_query_dsl.dto.MemberSearchCondition;
 import study.ex_query_dsl.dto.MemberTeamDto;
 
@@ -11,4 +16,9 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    //전체 개수를 countMode로 구한다. (MemberCountStrategy)
+    CountedPage<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable, CountMode countMode);
+    CountedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, CountMode countMode);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    MemberCursorResult searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
 }
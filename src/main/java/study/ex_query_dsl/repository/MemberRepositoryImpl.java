@@ -6,55 +6,98 @@ import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.ex_query_dsl.columnar.MemberColumnarIndex;
+import study.ex_query_dsl.config.CacheConfig;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.CountedPage;
+import study.ex_query_dsl.dto.MemberCursor;
+import study.ex_query_dsl.dto.MemberCursorResult;
 import study.ex_query_dsl.dto.MemberSearchCondition;
 import study.ex_query_dsl.dto.MemberTeamDto;
 import study.ex_query_dsl.dto.QMemberTeamDto;
 import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.fulltext.MemberTextIndex;
+import study.ex_query_dsl.repository.count.MemberCount;
+import study.ex_query_dsl.repository.count.MemberCountQuery;
+import study.ex_query_dsl.repository.count.MemberCountStrategy;
+import study.ex_query_dsl.repository.support.DeferredJoin;
+import study.ex_query_dsl.repository.support.PageExecutor;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.ex_query_dsl.entity.QMember.member;
 import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.repository.support.JoinElimination.leftJoinIfUsed;
 
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom {
         private final JPAQueryFactory queryFactory;
+        private final TeamNameDictionary teamNameDictionary;
+        private final PageExecutor pageExecutor;
+        private final MemberColumnarIndex memberColumnarIndex;
+        private final MemberTextIndex memberTextIndex;
+        private final Map<CountMode, MemberCountStrategy> countStrategies = new EnumMap<>(CountMode.class);
 //
 //    public MemberRepositoryImpl(EntityManager em) {
 //        this.queryFactory = new JPAQueryFactory(em);
 //    }
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, TeamNameDictionary teamNameDictionary, PageExecutor pageExecutor,
+                                MemberColumnarIndex memberColumnarIndex, MemberTextIndex memberTextIndex,
+                                List<MemberCountStrategy> countStrategies) {
         super(Member.class);
         this.queryFactory = new JPAQueryFactory(em); //이렇게 주입 받을 수도 있음
+        this.teamNameDictionary = teamNameDictionary;
+        this.pageExecutor = pageExecutor;
+        this.memberColumnarIndex = memberColumnarIndex;
+        this.memberTextIndex = memberTextIndex;
+        countStrategies.forEach(strategy -> this.countStrategies.put(strategy.mode(), strategy));
     }
 
 
 
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MEMBER_SEARCH, key = "#condition.normalize()",
+            condition = "!@entityChangeTracker.hasPendingChanges()")
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Optional<List<MemberTeamDto>> indexed = memberColumnarIndex.search(condition);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        //팀 조인 대신 TeamNameDictionary (MemberJpaRepository.search 참고)
         List<MemberTeamDto> result = from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        teamIdEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
                 )
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
+                        member.team.id.as("teamId")
                 ))
                 .fetch();
+        teamNameDictionary.fillTeamNames(result);
         return result;
 //        return queryFactory
 //                .select(new QMemberTeamDto(
@@ -76,14 +119,18 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MEMBER_SEARCH_PAGE, key = "{'simple', #condition.normalize(), #pageable}",
+            condition = "!@entityChangeTracker.hasPendingChanges()")
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        //team 조인은 팀 컬럼을 select/where에서 쓸 때만 건다. (JoinElimination)
         JPQLQuery<MemberTeamDto> jpaQuery = from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
                 )
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -92,11 +139,22 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ));
-        JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpaQuery);
+        JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, leftJoinIfUsed(jpaQuery, member.team, team));
 
         List<MemberTeamDto> result = query.fetch();
 
-        return null;
+        //count는 팀 조건이 있을 때만 조인한다.
+        JPQLQuery<Long> countQuery = from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                )
+                .select(member.count());
+
+        return PageableExecutionUtils.getPage(result, pageable, leftJoinIfUsed(countQuery, member.team, team)::fetchOne);
 
 //        QueryResults<MemberTeamDto> results = queryFactory
 //                .select(new QMemberTeamDto(
@@ -161,9 +219,112 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
 //    }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MEMBER_SEARCH_PAGE, key = "{'complex', #condition.normalize(), #pageable}",
+            condition = "!@entityChangeTracker.hasPendingChanges()")
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        //정렬이 없으면 메모리 컬럼 인덱스로 (member.index.enabled=true 일 때)
+        Optional<Page<MemberTeamDto>> indexed = memberColumnarIndex.searchPage(condition, pageable);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
         //카운트 쿼리 최적화
-        List<MemberTeamDto> content = queryFactory
+        JPAQuery<MemberTeamDto> contentQuery = memberTeamQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize());
+
+        //querydsl.page.parallel=true 이면 content와 count를 동시에 실행한다. 트랜잭션도 PageExecutor가 연다.
+        JPAQuery<Long> count = countQuery(condition);
+        return pageExecutor.getPage(pageable,
+                leftJoinIfUsed(contentQuery, member.team, team)::fetch,
+                em -> count.clone(em).fetchOne());
+    }
+
+    @Override
+    public CountedPage<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable,
+                                                       CountMode countMode) {
+        //searchPageSimple처럼 Sort를 적용한다.
+        JPQLQuery<MemberTeamDto> contentQuery = getQuerydsl()
+                .applyPagination(pageable, leftJoinIfUsed(memberTeamQuery(condition), member.team, team));
+        return countedPage(condition, pageable, countMode, contentQuery::fetch);
+    }
+
+    @Override
+    public CountedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable,
+                                                        CountMode countMode) {
+        //메모리 컬럼 인덱스는 개수를 바로 알기 때문에 항상 정확하다.
+        Optional<Page<MemberTeamDto>> indexed = memberColumnarIndex.searchPage(condition, pageable);
+        if (indexed.isPresent()) {
+            return new CountedPage<>(indexed.get(), CountMode.EXACT);
+        }
+
+        //지연 조인 : 깊은 페이지에서 건너뛰는 행은 id만 읽고(조인/DTO 없이), 그 페이지 id만 조인해서 만든다.
+        //정렬은 지금처럼 적용하지 않고, 페이지가 흔들리지 않게 id 순으로 자른다.
+        JPAQuery<Long> pageIds = leftJoinIfUsed(queryFactory
+                .select(member.id)
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team)
+                .orderBy(member.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize());
+        return countedPage(condition, pageable, countMode, () -> DeferredJoin.fetch(pageIds,
+                ids -> queryFactory
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")
+                        ))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.in(ids)),
+                MemberTeamDto::getMemberId));
+    }
+
+    /**
+     * count 쿼리 대신 countMode에 맞는 MemberCountStrategy로 전체 개수를 구한다.
+     * content만 보고 total을 알 수 있으면(마지막 페이지 등) count를 안 하므로 EXACT가 된다.
+     */
+    private CountedPage<MemberTeamDto> countedPage(MemberSearchCondition condition, Pageable pageable, CountMode countMode,
+                                                   Supplier<List<MemberTeamDto>> content) {
+        MemberCountStrategy strategy = countStrategies.get(countMode);
+        JPAQuery<Long> countQuery = countQuery(condition);
+        AtomicReference<MemberCount> counted = new AtomicReference<>();
+        Page<MemberTeamDto> page = pageExecutor.getPage(pageable, content, em -> {
+            MemberCount count = strategy.count(condition,
+                    new MemberCountQuery(em, extra -> countQuery.clone(em).where(extra).fetchOne()));
+            counted.set(count);
+            return count.total();
+        });
+        MemberCount count = counted.get();
+        if (count == null) {
+            return new CountedPage<>(page, CountMode.EXACT);
+        }
+        //count는 content와 동시에 돌 수 있어서 content를 받은 뒤에 하한을 건다.
+        return new CountedPage<>(new PageImpl<>(page.getContent(), pageable,
+                count.atLeast(minTotal(pageable, page.getNumberOfElements()))), count.mode());
+    }
+
+    /**
+     * 추정/캐시한 total이 이미 읽은 행보다 적으면 PageImpl이 total을 offset + content 수로 잘라서 hasNext가 false가 된다.
+     * 그래서 읽은 데까지는 있고, 페이지가 꽉 찼으면 적어도 하나는 더 있다고 본다.
+     */
+    private static long minTotal(Pageable pageable, int contentSize) {
+        if (contentSize == 0) {
+            return 0;
+        }
+        return pageable.getOffset() + contentSize + (contentSize == pageable.getPageSize() ? 1 : 0);
+    }
+
+    private JPAQuery<MemberTeamDto> memberTeamQuery(MemberSearchCondition condition) {
+        return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -172,29 +333,125 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                         team.name.as("teamName")
                 ))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                );
+    }
+
+    //ToOne left join은 count를 바꾸지 않으므로 팀 조건이 없으면 조인 없이 센다.
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                );
+        return leftJoinIfUsed(countQuery, member.team, team);
+    }
+
+    /**
+     * 무한 스크롤용 : 전체 개수 없이 다음 페이지가 있는지만
+     * size + 1개를 가져와서 하나 더 있으면 hasNext, count 쿼리는 아예 없다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        Optional<Page<MemberTeamDto>> indexed = memberColumnarIndex.searchPage(condition, pageable);
+        if (indexed.isPresent()) {
+            return new SliceImpl<>(indexed.get().getContent(), pageable, indexed.get().hasNext());
+        }
+
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                );
+        JPQLQuery<MemberTeamDto> sorted = getQuerydsl().applySorting(pageable.getSort(), leftJoinIfUsed(query, member.team, team));
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(sorted.fetch(), pageable, false);
+        }
+
+        List<MemberTeamDto> content = sorted
                 .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .limit(pageable.getPageSize() + 1) //다음 페이지가 있는지 보려고 하나 더 가져온다.
                 .fetch();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
+    /**
+     * 키셋(seek) 페이징
+     * offset은 앞의 행을 전부 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+     * (age, member_id) 인덱스를 타고 커서 바로 다음 행부터 읽으므로 몇 번째 페이지든 비용이 같다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public MemberCursorResult searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        Assert.isTrue(size > 0, "size must be positive");
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition),
+                        afterCursor(cursor)
+                )
+                .orderBy(member.age.asc(), member.id.asc())
+                .limit(size + 1); //다음 페이지가 있는지 보려고 하나 더 가져온다.
+        List<MemberTeamDto> content = leftJoinIfUsed(query, member.team, team).fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
 
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        MemberCursor next = null;
+        if (hasNext) {
+            MemberTeamDto last = content.get(content.size() - 1);
+            next = new MemberCursor(last.getAge(), last.getMemberId());
+        }
+        return new MemberCursorResult(content, next, hasNext);
+    }
+
+    private BooleanExpression afterCursor(MemberCursor cursor) {
+        if (cursor == null || cursor.isFirst()) {
+            return null;
+        }
+        //age >= ? 를 앞에 둬서 인덱스 range scan 시작점을 잡아준다.
+        return member.age.goe(cursor.getLastAge())
+                .and(member.age.gt(cursor.getLastAge())
+                        .or(member.age.eq(cursor.getLastAge()).and(member.id.gt(cursor.getLastMemberId()))));
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -205,6 +462,10 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
 
+    private BooleanExpression teamIdEq(String teamName) {
+        return hasText(teamName) ? teamNameDictionary.teamNameEq(teamName) : null;
+    }
+
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe != null ? member.age.goe(ageGoe) : null;
     }
@@ -1,26 +1,49 @@
 package study.ex_query_dsl.repository;
 
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
 import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.dto.QMemberTeamDto;
 import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.fulltext.MemberTextIndex;
+import study.ex_query_dsl.repository.support.CountQueryDeriver;
 import study.ex_query_dsl.repository.support.Querydsl4RepositorySupport;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.ex_query_dsl.entity.QMember.*;
 import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.repository.support.JoinElimination.leftJoinIfUsed;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
-    public MemberTestRepository() {
+    //쿼리 템플릿에 값 대신 들어가는 자리
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private final MemberTextIndex memberTextIndex;
+
+    public MemberTestRepository(MemberTextIndex memberTextIndex) {
         super(Member.class);
+        this.memberTextIndex = memberTextIndex;
     }
 
     public List<Member> basicSelect() {
@@ -34,55 +57,183 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
+    //위와 같은데 read only (스냅샷 X, flush X : 이 트랜잭션에서 flush 안 한 변경은 안 보인다)
+    public List<Member> readOnlySelectAll() {
+        return readOnlyWithoutFlush(selectFrom(member))
+                .fetch();
+    }
+
+    /**
+     * 조건 shape별로 JPQL을 한 번만 만들고, 이후에는 파라미터만 바인딩해서 실행한다.
+     */
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (condition.hasTextSearch()) {
+            //텍스트 조건은 인덱스에서 찾은 id 목록(in 절)이 매번 달라서 템플릿으로 만들 수 없다.
+            return leftJoinIfUsed(select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")
+                    ))
+                    .from(member)
+                    .where(
+                            usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()),
+                            memberTextIndex.matches(condition)
+                    ), member.team, team).fetch();
+        }
+        int shape = condition.shapeMask();
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if ((shape & MemberSearchCondition.USERNAME) != 0) params.put(USERNAME, condition.getUsername());
+        if ((shape & MemberSearchCondition.TEAM_NAME) != 0) params.put(TEAM_NAME, condition.getTeamName());
+        if ((shape & MemberSearchCondition.AGE_GOE) != 0) params.put(AGE_GOE, condition.getAgeGoe());
+        if ((shape & MemberSearchCondition.AGE_LOE) != 0) params.put(AGE_LOE, condition.getAgeLoe());
+
+        return fetchCompiled("search", shape, () -> leftJoinIfUsed(select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .where(
+                        params.containsKey(USERNAME) ? member.username.eq(USERNAME) : null,
+                        params.containsKey(TEAM_NAME) ? team.name.eq(TEAM_NAME) : null,
+                        params.containsKey(AGE_GOE) ? member.age.goe(AGE_GOE) : null,
+                        params.containsKey(AGE_LOE) ? member.age.loe(AGE_LOE) : null
+                ), member.team, team), params);
+    }
+
+    @Transactional(readOnly = true)
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
         //앞에서 배운 이게 그나마 최적화한 버전
-        JPAQuery<Member> query = selectFrom(member)
+        //teamName 조건이 있을 때만 team 조인이 붙는다.
+        JPAQuery<Member> query = leftJoinIfUsed(readOnlySelectFrom(member)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team);
 
+        //페이징(orderBy/offset/limit)을 붙이기 전에 count 쿼리를 만들어둔다.
+        Function<EntityManager, Long> count = CountQueryDeriver.derive(query);
         List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
 
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count.apply(getEntityManager()));
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
         //이번에는 Querydsl4RepositorySupport에서 만든 걸 사용
-        //이 코드는 위 코드와 완전히 같은 코드다.
-        return applyPagination(pageable, query -> query
-                .selectFrom(member)
+        //이 코드는 위 코드와 완전히 같은 코드다. (읽기 전용 트랜잭션은 PageExecutor가 연다)
+        return applyPagination(pageable, query -> leftJoinIfUsed(readOnly(query
+                .selectFrom(member))
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ));
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team));
     }
 
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, contentQuery -> contentQuery
-                .selectFrom(member)
+        return applyPagination(pageable, contentQuery -> leftJoinIfUsed(readOnly(contentQuery
+                .selectFrom(member))
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ), countQuery -> countQuery
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team), countQuery -> leftJoinIfUsed(countQuery
                 .select(member.id)
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team)
         );
     }
 
+    //count 없는 버전 (applySlicing)
+    @Transactional(readOnly = true)
+    public Slice<Member> applySlicing(MemberSearchCondition condition, Pageable pageable) {
+        return applySlicing(pageable, query -> leftJoinIfUsed(readOnly(query
+                .selectFrom(member))
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                ), member.team, team));
+    }
+
+    /**
+     * 지연 조인 페이징 : member.id만 페이징한 다음, 그 id만 team 조인해서 MemberTeamDto로 만든다.
+     * 깊은 페이지에서도 건너뛰는 행은 인덱스(idx_member_age_id 등)로만 읽는다.
+     */
+    public Page<MemberTeamDto> searchPageByDeferredJoin(MemberSearchCondition condition, Pageable pageable) {
+        return applyDeferredPagination(pageable, member.id,
+                query -> leftJoinIfUsed(query
+                        .select(member.id)
+                        .from(member)
+                        .where(
+                                usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()),
+                                memberTextIndex.matches(condition)
+                        ), member.team, team),
+                ids -> select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.in(ids)),
+                MemberTeamDto::getMemberId);
+    }
+
+    /**
+     * 조회 결과를 List로 모으지 않고 sink로 한 건씩 넘긴다. (대용량 export 용)
+     * Stream이 커넥션을 물고 있어야 하므로 트랜잭션은 여기서 연다.
+     */
+    @Transactional(readOnly = true)
+    public long exportSearch(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> sink) {
+        JPAQuery<MemberTeamDto> query = select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        memberTextIndex.matches(condition)
+                )
+                .orderBy(member.id.asc());
+
+        return forEachStreamed(leftJoinIfUsed(query, member.team, team), fetchSize, sink);
+    }
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
@@ -0,0 +1,113 @@
+package study.ex_query_dsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangeTracker;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * 팀 이름 <-> 팀 id 사전
+ * 팀은 몇 개 안 되고 거의 안 바뀌기 때문에 통째로 메모리에 올려둔다.
+ * teamName 조건을 member.team.id in (?)로 바꿔서 team 조인 없이 member 인덱스(team_id)만 타게 하고,
+ * 결과의 teamName도 조인 대신 여기서 채운다.
+ *
+ * Team이 바뀌면(커밋 후 EntityChangedEvent) 버리고 다음 조회 때 다시 읽는다.
+ * 사전에 없는 이름/id(아직 커밋 안 된 팀 등)는 DB로 직접 확인하므로 결과는 조인했을 때와 같다.
+ * 현재 트랜잭션에 커밋 안 된 변경이 있으면(팀 이름을 바꾼 경우 등) 사전을 안 쓰고 DB로 확인한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamNameDictionary {
+    private final JPAQueryFactory queryFactory;
+    private final EntityChangeTracker entityChangeTracker;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    /**
+     * teamName = ? 조건. 이름이 같은 팀이 여러 개일 수 있어서 in으로 건다.
+     */
+    public BooleanExpression teamNameEq(String teamName) {
+        List<Long> ids = entityChangeTracker.hasPendingChanges() ? null : snapshot().idsByName().get(teamName);
+        if (ids == null) {
+            return member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)));
+        }
+        return ids.size() == 1 ? member.team.id.eq(ids.get(0)) : member.team.id.in(ids);
+    }
+
+    public void fillTeamNames(List<MemberTeamDto> rows) {
+        Map<Long, String> nameById = entityChangeTracker.hasPendingChanges() ? Map.of() : snapshot().nameById();
+        Set<Long> missing = new HashSet<>();
+        for (MemberTeamDto row : rows) {
+            if (row.getTeamId() != null && !nameById.containsKey(row.getTeamId())) {
+                missing.add(row.getTeamId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            nameById = new HashMap<>(nameById);
+            for (Tuple tuple : queryFactory.select(team.id, team.name).from(team).where(team.id.in(missing)).fetch()) {
+                nameById.put(tuple.get(team.id), tuple.get(team.name));
+            }
+        }
+        for (MemberTeamDto row : rows) {
+            if (row.getTeamId() != null) {
+                row.setTeamName(nameById.get(row.getTeamId()));
+            }
+        }
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.contains(Team.class)) {
+            version.incrementAndGet();
+            snapshot = null;
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadingVersion = version.get();
+        Snapshot loaded = load();
+        //커밋 안 된 변경이 섞였거나, 읽는 도중에 팀이 바뀌었으면 이번 한 번만 쓰고 저장하지 않는다.
+        if (!entityChangeTracker.hasPendingChanges() && version.get() == loadingVersion) {
+            snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    private Snapshot load() {
+        Map<String, List<Long>> idsByName = new HashMap<>();
+        Map<Long, String> nameById = new HashMap<>();
+        for (Tuple tuple : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            Long id = tuple.get(team.id);
+            String name = tuple.get(team.name);
+            idsByName.computeIfAbsent(name, k -> new ArrayList<>()).add(id);
+            nameById.put(id, name);
+        }
+        return new Snapshot(idsByName, nameById);
+    }
+
+    private record Snapshot(Map<String, List<Long>> idsByName, Map<Long, String> nameById) {
+    }
+}
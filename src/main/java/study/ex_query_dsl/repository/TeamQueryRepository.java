@@ -0,0 +1,64 @@
+package study.ex_query_dsl.repository;
+
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.dto.MemberDto;
+import study.ex_query_dsl.dto.QMemberDto;
+import study.ex_query_dsl.dto.QTeamWithMembersDto;
+import study.ex_query_dsl.dto.TeamWithMembersDto;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.support.Querydsl4RepositorySupport;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.querydsl.core.group.GroupBy.groupBy;
+import static com.querydsl.core.group.GroupBy.list;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+@Repository
+public class TeamQueryRepository extends Querydsl4RepositorySupport {
+
+    public TeamQueryRepository() {
+        super(Team.class);
+    }
+
+    /**
+     * 팀 페이지 + 팀별 회원
+     * team.getMembers()를 팀마다 돌면 팀 수만큼 select가 나간다. (N+1)
+     * 팀이 몇 개든 쿼리 수가 고정이다.
+     * 1. 팀 페이지 (id, name) + count
+     * 2. 그 팀들의 회원을 in 조건 한 번으로 조회해서 팀 id로 묶는다.
+     * 회원 쿼리는 (팀 id, username, age) 컬럼만 읽고 groupBy.transform이 행을 차례로 팀별 List에 넣는다.
+     * 엔티티를 만들지 않으니 영속성 컨텍스트에 팀 x 회원 그래프가 쌓이지 않고, 팀 정보도 회원 수만큼 중복되지 않는다.
+     * 1, 2가 같은 트랜잭션에서 읽어야 하므로 트랜잭션을 열고, 그래서 1의 count는 병렬로 돌지 않는다. (PageExecutor)
+     */
+    @Transactional(readOnly = true)
+    public Page<TeamWithMembersDto> findTeamsWithMembers(Pageable pageable) {
+        Page<TeamWithMembersDto> teams = applyPagination(pageable, query -> query
+                .select(new QTeamWithMembersDto(team.id, team.name))
+                .from(team)
+                .orderBy(team.id.asc()));
+        if (teams.isEmpty()) {
+            return teams;
+        }
+
+        List<Long> teamIds = teams.getContent().stream()
+                .map(TeamWithMembersDto::getTeamId)
+                .toList();
+        //Hibernate 6에서는 HQLTemplates(기본)로 transform 하면 scroll 결과 타입이 달라서 실패한다. JPQLTemplates로 바꿔서 실행
+        Map<Long, List<MemberDto>> membersByTeam = new JPAQueryFactory(JPQLTemplates.DEFAULT, getEntityManager())
+                .from(member)
+                .where(member.team.id.in(teamIds))
+                .orderBy(member.team.id.asc(), member.id.asc())
+                .transform(groupBy(member.team.id).as(list(new QMemberDto(member.username, member.age))));
+
+        teams.forEach(dto -> dto.setMembers(membersByTeam.getOrDefault(dto.getTeamId(), List.of())));
+        return teams;
+    }
+}
@@ -0,0 +1,65 @@
+package study.ex_query_dsl.repository;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.dto.TeamStatsDto;
+import study.ex_query_dsl.entity.TeamStats;
+import study.ex_query_dsl.repository.support.Querydsl4RepositorySupport;
+import study.ex_query_dsl.stats.RangeStats;
+import study.ex_query_dsl.stats.TeamStatsTable;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.entity.QTeamStats.teamStats;
+
+/**
+ * 팀 통계 조회
+ * select team.name, count(member), avg(member.age) ... group by team.name 은 회원 전체를 읽는다.
+ * team_stats는 팀마다 한 행이라 팀 수만큼만 읽는다.
+ */
+@Repository
+public class TeamStatsRepository extends Querydsl4RepositorySupport {
+
+    public TeamStatsRepository() {
+        super(TeamStats.class);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeamStatsDto> findAll() {
+        return getQueryFactory()
+                .select(team.id, team.name, teamStats)
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id))
+                .orderBy(team.name.asc())
+                .fetch()
+                .stream()
+                .map(row -> new TeamStatsDto(row.get(team.id), row.get(team.name), row.get(teamStats)))
+                .toList();
+    }
+
+    /**
+     * 벌크 연산처럼 Hibernate 이벤트 없이 member가 바뀔 때, member_id 구간을 바꾸기 전후로 팀별 집계를 떠서 차이만 반영한다.
+     * 팀 전체가 아니라 구간만 읽으므로 chunk마다 비용이 chunk 크기만큼이다.
+     * 호출한 쪽 트랜잭션 안에서 실행되고, 구간의 행은 트랜잭션이 끝날 때까지 잠긴다.
+     *
+     * @param change 구간 안의 행을 바꾸고 바뀐 행 수를 돌려준다.
+     */
+    public long applyRangeChange(long fromId, long toId, LongSupplier change) {
+        Session session = getEntityManager().unwrap(Session.class);
+        RangeStats before = session.doReturningWork(connection -> TeamStatsTable.readRange(connection, fromId, toId, true));
+        long changed = change.getAsLong();
+        if (changed > 0) {
+            RangeStats after = session.doReturningWork(connection -> TeamStatsTable.readRange(connection, fromId, toId, false));
+            session.doWork(connection -> TeamStatsTable.applyRangeChange(connection, before, after));
+        }
+        return changed;
+    }
+
+    @Transactional
+    public void rebuildAll() {
+        getEntityManager().unwrap(Session.class).doWork(TeamStatsTable::rebuildAll);
+    }
+}
@@ -0,0 +1,75 @@
+package study.ex_query_dsl.repository.count;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangeTracker;
+import study.ex_query_dsl.event.EntityChangedEvent;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 조건별 count 캐시 (member.count.cache-ttl 동안)
+ * 키는 condition.normalize() 라서 페이지/정렬이 달라도 같은 조건이면 같은 값을 쓴다.
+ * Member/Team이 바뀌면(커밋 후 EntityChangedEvent) 통째로 비운다. 현재 트랜잭션에 커밋 안 된 변경이 있으면 캐시를 안 쓴다.
+ */
+@Component
+public class CachedMemberCount implements MemberCountStrategy {
+    private final EntityChangeTracker entityChangeTracker;
+    private final Cache<MemberSearchCondition, Long> counts;
+    //비우는 중에 세던 값(바뀌기 전 값)이 비운 뒤에 들어가지 않게
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachedMemberCount(EntityChangeTracker entityChangeTracker, MeterRegistry meterRegistry,
+                             @Value("${member.count.cache-ttl:30s}") Duration ttl,
+                             @Value("${member.count.cache-size:10000}") long maximumSize) {
+        this.entityChangeTracker = entityChangeTracker;
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "memberCount");
+    }
+
+    @Override
+    public CountMode mode() {
+        return CountMode.CACHED;
+    }
+
+    @Override
+    public MemberCount count(MemberSearchCondition condition, MemberCountQuery query) {
+        if (entityChangeTracker.hasPendingChanges()) {
+            return MemberCount.exact(query.exact());
+        }
+        MemberSearchCondition key = condition.normalize();
+        Long cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return new MemberCount(cached, CountMode.CACHED);
+        }
+        long loadingGeneration = generation.get();
+        long total = query.exact();
+        counts.put(key, total);
+        if (loadingGeneration != generation.get()) {
+            counts.invalidate(key);
+        }
+        return new MemberCount(total, CountMode.CACHED);
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.contains(Member.class) || event.contains(Team.class)) {
+            generation.incrementAndGet();
+            counts.invalidateAll();
+        }
+    }
+}
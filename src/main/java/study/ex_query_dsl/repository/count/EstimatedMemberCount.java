@@ -0,0 +1,74 @@
+package study.ex_query_dsl.repository.count;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static study.ex_query_dsl.entity.QMember.member;
+
+/**
+ * 추정 count
+ * - 전체 행 수 : H2 테이블 통계 (information_schema.tables.row_count_estimate), 조건이 없으면 이게 답이다.
+ * - 조건이 있으면 member_id 구간 하나(약 member.count.sample-size 행)를 랜덤으로 골라서
+ *   그 안에서 조건에 맞는 비율 * 전체 행 수
+ * PK 구간만 읽으므로 테이블이 아무리 커도 비용이 일정하다. 대신 id 순서와 조건이 관련 있으면(최근 가입자 등) 많이 틀릴 수 있다.
+ * 테이블이 샘플보다 작으면 그냥 정확히 센다.
+ */
+@Component
+public class EstimatedMemberCount implements MemberCountStrategy {
+    private static final String ROW_COUNT_ESTIMATE = "select row_count_estimate from information_schema.tables"
+            + " where table_schema = current_schema and table_name = 'MEMBER'";
+
+    private final int sampleSize;
+
+    public EstimatedMemberCount(@Value("${member.count.sample-size:1000}") int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    @Override
+    public CountMode mode() {
+        return CountMode.ESTIMATED;
+    }
+
+    @Override
+    public MemberCount count(MemberSearchCondition condition, MemberCountQuery query) {
+        EntityManager em = query.em();
+        long rows = rowCountEstimate(em);
+        if (rows <= sampleSize) {
+            return MemberCount.exact(query.exact());
+        }
+        if (condition.shapeMask() == 0 && !condition.hasTextSearch()) {
+            return new MemberCount(rows, CountMode.ESTIMATED);
+        }
+
+        Tuple range = new JPAQuery<>(em).select(member.id.min(), member.id.max()).from(member).fetchOne();
+        Long minId = range == null ? null : range.get(member.id.min());
+        Long maxId = range == null ? null : range.get(member.id.max());
+        if (minId == null || maxId == null) {
+            return MemberCount.exact(query.exact());
+        }
+        //id 간격이 고르다고 보고 sampleSize 행쯤 들어갈 구간 폭을 잡는다.
+        long width = Math.max(1, (maxId - minId + 1) * sampleSize / rows);
+        long from = minId + ThreadLocalRandom.current().nextLong(Math.max(1, maxId - minId + 2 - width));
+        long to = from + width - 1;
+
+        Long sampled = new JPAQuery<>(em).select(member.count()).from(member).where(member.id.between(from, to)).fetchOne();
+        if (sampled == null || sampled == 0) {
+            return MemberCount.exact(query.exact());
+        }
+        long matched = query.count(member.id.between(from, to));
+        return new MemberCount(Math.round((double) matched * rows / sampled), CountMode.ESTIMATED);
+    }
+
+    private static long rowCountEstimate(EntityManager em) {
+        List<?> result = em.createNativeQuery(ROW_COUNT_ESTIMATE).getResultList();
+        return result.isEmpty() || result.get(0) == null ? 0 : ((Number) result.get(0)).longValue();
+    }
+}
@@ -0,0 +1,19 @@
+package study.ex_query_dsl.repository.count;
+
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+
+@Component
+public class ExactMemberCount implements MemberCountStrategy {
+
+    @Override
+    public CountMode mode() {
+        return CountMode.EXACT;
+    }
+
+    @Override
+    public MemberCount count(MemberSearchCondition condition, MemberCountQuery query) {
+        return MemberCount.exact(query.exact());
+    }
+}
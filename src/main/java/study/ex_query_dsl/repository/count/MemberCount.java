@@ -0,0 +1,20 @@
+package study.ex_query_dsl.repository.count;
+
+import study.ex_query_dsl.dto.CountMode;
+
+/**
+ * @param mode 실제로 쓰인 방법. ex) CACHED 전략이라도 캐시를 못 쓰면 EXACT
+ */
+public record MemberCount(long total, CountMode mode) {
+
+    public static MemberCount exact(long total) {
+        return new MemberCount(total, CountMode.EXACT);
+    }
+
+    /**
+     * 추정/캐시한 값은 minTotal(이미 읽은 행 수 등)보다 작지 않게 올린다. EXACT는 그대로
+     */
+    public long atLeast(long minTotal) {
+        return mode == CountMode.EXACT ? total : Math.max(total, minTotal);
+    }
+}
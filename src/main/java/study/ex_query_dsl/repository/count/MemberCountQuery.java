@@ -0,0 +1,24 @@
+package study.ex_query_dsl.repository.count;
+
+import com.querydsl.core.types.Predicate;
+import jakarta.persistence.EntityManager;
+
+import java.util.function.Function;
+
+/**
+ * 검색 조건이 이미 걸린 count 쿼리
+ *
+ * @param em      count를 실행할 EntityManager (PageExecutor가 넘겨준 것)
+ * @param counter 조건을 더 붙여서 센다. null이면 검색 조건 그대로 ex) extra -> countQuery.clone(em).where(extra).fetchOne()
+ */
+public record MemberCountQuery(EntityManager em, Function<Predicate, Long> counter) {
+
+    public long exact() {
+        return count(null);
+    }
+
+    public long count(Predicate extra) {
+        Long count = counter.apply(extra);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,20 @@
+package study.ex_query_dsl.repository.count;
+
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+
+/**
+ * 페이지 조회의 전체 개수 구하는 방법 (MemberRepositoryCustom.searchPageSimple/searchPageComplex(.., CountMode))
+ * 화면에 "약 1.2M건"만 보여주면 되는데 count 쿼리가 content 쿼리보다 비쌀 때 정확도를 포기하고 싸게 센다.
+ * 구현체는 빈으로 등록하면 mode()로 골라서 쓴다.
+ */
+public interface MemberCountStrategy {
+
+    CountMode mode();
+
+    /**
+     * content를 보고 total을 알 수 있으면(마지막 페이지 등) 호출되지 않는다.
+     * PageExecutor가 다른 스레드에서 부를 수 있다.
+     */
+    MemberCount count(MemberSearchCondition condition, MemberCountQuery query);
+}
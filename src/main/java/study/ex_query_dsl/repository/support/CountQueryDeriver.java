@@ -0,0 +1,182 @@
+package study.ex_query_dsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * content 쿼리에서 제일 싼 count 쿼리를 만든다. (Querydsl 5에서 deprecated 된 fetchCount 대신)
+ * fetchCount는 content 쿼리의 조인을 그대로 들고 가고, group by / having 이 있으면 틀린 값을 내거나 실패한다.
+ *
+ * - order by, offset/limit, select 절, fetch join 표시는 버린다.
+ * - 어디에서도(where/group by/having/다른 조인) 안 쓰는 left join 중 행 수를 바꾸지 않는 것은 뺀다.
+ *   (ToOne 조인, 그리고 fetch join 된 컬렉션 : Hibernate가 content에서 root 중복을 없애므로)
+ * - 세는 방법
+ *   group by 키 1개(having 없음), distinct + 컬럼 1개 : count(distinct 키) (+ 키가 null인 그룹이 있으면 1)
+ *   컬렉션 fetch join이 남아 있음 : count(distinct root)
+ *   그 외 group by / distinct(컬럼 여러 개) : 그룹 키(행)만 조회해서 개수를 센다. (정확하지만 느리다)
+ *   나머지 : count(root)
+ *
+ * ex) pageExecutor.getPage(pageable, content, CountQueryDeriver.derive(query))
+ * 페이징(offset/limit, orderBy)을 붙이기 전에 호출해야 한다. 호출 시점의 쿼리를 복사해두므로 이후에 바뀌어도 상관없다.
+ */
+public final class CountQueryDeriver {
+
+    private CountQueryDeriver() {
+    }
+
+    public static Function<EntityManager, Long> derive(JPAQuery<?> content) {
+        QueryMetadata source = content.getMetadata();
+        List<JoinExpression> joins = source.getJoins();
+        Expression<?> root = alias(joins.get(0).getTarget());
+
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        boolean collectionFetch = false;
+        for (int i = 0; i < joins.size(); i++) {
+            JoinExpression join = joins.get(i);
+            boolean fetch = join.hasFlag(JPAQueryMixin.FETCH);
+            if (i > 0 && removable(join, fetch, source)) {
+                continue;
+            }
+            metadata.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    metadata.addJoinFlag(flag);
+                }
+            }
+            collectionFetch |= fetch && isCollection(join.getTarget());
+        }
+        if (source.getWhere() != null) {
+            metadata.addWhere(source.getWhere());
+        }
+        copyParams(source, metadata);
+
+        List<Expression<?>> groupBy = source.getGroupBy();
+        if (!groupBy.isEmpty()) {
+            if (groupBy.size() == 1 && source.getHaving() == null) {
+                return countDistinct(metadata, groupBy.get(0));
+            }
+            //having은 그룹 단위로 걸러야 하므로 group by를 살려서 키만 조회한다.
+            groupBy.forEach(metadata::addGroupBy);
+            if (source.getHaving() != null) {
+                metadata.addHaving(source.getHaving());
+            }
+            return countRows(metadata, Projections.tuple(groupBy.toArray(Expression[]::new)));
+        }
+        if (source.isDistinct()) {
+            Expression<?> key = singleColumn(source.getProjection());
+            if (key != null) {
+                return countDistinct(metadata, key);
+            }
+            metadata.setDistinct(true);
+            return countRows(metadata, source.getProjection());
+        }
+        Ops.AggOps count = collectionFetch ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG;
+        return count(metadata, Expressions.numberOperation(Long.class, count, root));
+    }
+
+    private static Function<EntityManager, Long> count(QueryMetadata metadata, Expression<Long> count) {
+        return em -> query(em, metadata).select(count).fetchOne();
+    }
+
+    //count(distinct null)은 0이라서 키가 null인 그룹(행)이 있는지 따로 본다.
+    private static Function<EntityManager, Long> countDistinct(QueryMetadata metadata, Expression<?> key) {
+        NumberExpression<Long> distinct = Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_DISTINCT_AGG, key);
+        NumberExpression<Integer> hasNull = new CaseBuilder()
+                .when(Expressions.booleanOperation(Ops.IS_NULL, key)).then(1)
+                .otherwise(0)
+                .max();
+        return em -> {
+            Tuple row = query(em, metadata).select(distinct, hasNull).fetchOne();
+            Long total = row == null ? null : row.get(distinct);
+            Integer nullGroup = row == null ? null : row.get(hasNull);
+            return (total == null ? 0 : total) + (nullGroup != null && nullGroup == 1 ? 1 : 0);
+        };
+    }
+
+    private static Function<EntityManager, Long> countRows(QueryMetadata metadata, Expression<?> projection) {
+        return em -> (long) query(em, metadata).select(projection).fetch().size();
+    }
+
+    private static JPAQuery<?> query(EntityManager em, QueryMetadata metadata) {
+        return new JPAQuery<>(em, JPAProvider.getTemplates(em), metadata.clone());
+    }
+
+    private static boolean removable(JoinExpression join, boolean fetch, QueryMetadata source) {
+        if (join.getType() != JoinType.LEFTJOIN
+                || !(join.getTarget() instanceof Operation<?> operation)
+                || operation.getOperator() != Ops.ALIAS
+                || !(operation.getArg(0) instanceof Path<?> association)
+                || association.getMetadata().getParent() == null) {
+            return false;
+        }
+        if (isCollection(association) && !fetch) {
+            return false;
+        }
+        Path<?> alias = (Path<?>) operation.getArg(1);
+        if (JoinElimination.uses(source.getWhere(), alias)
+                || JoinElimination.uses(source.getHaving(), alias)
+                || source.getGroupBy().stream().anyMatch(expr -> JoinElimination.uses(expr, alias))
+                || (source.isDistinct() && JoinElimination.uses(source.getProjection(), alias))) {
+            return false;
+        }
+        for (JoinExpression other : source.getJoins()) {
+            if (other != join && (JoinElimination.uses(other.getTarget(), alias)
+                    || JoinElimination.uses(other.getCondition(), alias))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Expression<?> singleColumn(Expression<?> projection) {
+        if (projection instanceof FactoryExpression<?> factory) {
+            return factory.getArgs().size() == 1 ? factory.getArgs().get(0) : null;
+        }
+        return projection;
+    }
+
+    private static Expression<?> alias(Expression<?> target) {
+        if (target instanceof Operation<?> operation && operation.getOperator() == Ops.ALIAS) {
+            return operation.getArg(1);
+        }
+        return target;
+    }
+
+    private static boolean isCollection(Expression<?> target) {
+        Expression<?> path = target instanceof Operation<?> operation && operation.getOperator() == Ops.ALIAS
+                ? operation.getArg(0)
+                : target;
+        return Collection.class.isAssignableFrom(path.getType()) || Map.class.isAssignableFrom(path.getType());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void copyParams(QueryMetadata source, QueryMetadata target) {
+        source.getParams().forEach((param, value) -> target.setParam((ParamExpression<Object>) param, value));
+    }
+}
@@ -0,0 +1,43 @@
+package study.ex_query_dsl.repository.support;
+
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 지연 조인(deferred join)의 content 조회
+ * 1) pageIdQuery : 이미 정렬/offset/limit까지 붙은 id 쿼리로 그 페이지 id만 가져온다.
+ * 2) rowQuery : 그 id만 in으로 조회해서 실제 행을 만들고, 1)의 순서대로 다시 줄 세운다.
+ *
+ * ex) fetch(select(member.id).from(member).where(...).orderBy(member.id.asc()).offset(..).limit(..),
+ *           ids -> select(...).from(member).leftJoin(member.team, team).where(member.id.in(ids)),
+ *           MemberTeamDto::getMemberId)
+ *
+ * Querydsl4RepositorySupport.applyDeferredPagination, MemberRepositoryImpl.searchPageComplex(/v3)에서 쓴다.
+ */
+public final class DeferredJoin {
+
+    private DeferredJoin() {
+    }
+
+    public static <T, ID> List<T> fetch(JPQLQuery<ID> pageIdQuery, Function<List<ID>, JPAQuery<T>> rowQuery,
+                                        Function<T, ID> rowId) {
+        List<ID> pageIds = pageIdQuery.fetch();
+        if (pageIds.isEmpty()) {
+            return List.of();
+        }
+        Map<ID, Integer> position = new HashMap<>(pageIds.size() * 2);
+        for (int i = 0; i < pageIds.size(); i++) {
+            position.put(pageIds.get(i), i);
+        }
+        List<T> rows = new ArrayList<>(rowQuery.apply(pageIds).fetch());
+        rows.sort(Comparator.comparing(row -> position.get(rowId.apply(row))));
+        return rows;
+    }
+}
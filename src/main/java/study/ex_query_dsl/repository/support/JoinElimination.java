@@ -0,0 +1,122 @@
+package study.ex_query_dsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.jpa.JPQLQuery;
+
+import java.util.List;
+
+/**
+ * 조인 제거
+ * 검색 쿼리마다 leftJoin(member.team, team)을 무조건 걸면, 팀 조건이 없을 때도, count 쿼리처럼 결과에 영향이 없을 때도 조인을 한다.
+ * 쿼리를 다 만든 다음(select/where/orderBy/groupBy/having) alias(team)를 실제로 쓰는 곳이 있을 때만 조인을 건다.
+ *
+ * ex) leftJoinIfUsed(select(member.count()).from(member).where(...), member.team, team)
+ *
+ * ToOne left join은 행 수를 바꾸지 않으므로 안 쓰이면 빼도 결과가 같다.
+ * (inner join이나 컬렉션 조인은 행 수가 바뀔 수 있으니 여기에 쓰면 안 된다.)
+ */
+public final class JoinElimination {
+
+    private JoinElimination() {
+    }
+
+    public static <Q extends JPQLQuery<?>, P> Q leftJoinIfUsed(Q query, EntityPath<P> target, Path<P> alias) {
+        if (uses(query.getMetadata(), alias)) {
+            query.leftJoin(target, alias);
+        }
+        return query;
+    }
+
+    public static boolean uses(QueryMetadata metadata, Path<?> alias) {
+        return uses(metadata.getProjection(), alias)
+                || uses(metadata.getWhere(), alias)
+                || uses(metadata.getHaving(), alias)
+                || metadata.getGroupBy().stream().anyMatch(expr -> uses(expr, alias))
+                || metadata.getOrderBy().stream().map(OrderSpecifier::getTarget).anyMatch(expr -> uses(expr, alias));
+    }
+
+    public static boolean uses(Expression<?> expr, Path<?> alias) {
+        return expr != null && Boolean.TRUE.equals(expr.accept(USES_ALIAS, alias));
+    }
+
+    private static final Visitor<Boolean, Path<?>> USES_ALIAS = new Visitor<>() {
+        @Override
+        public Boolean visit(Constant<?> expr, Path<?> alias) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(FactoryExpression<?> expr, Path<?> alias) {
+            return anyUses(expr.getArgs(), alias);
+        }
+
+        @Override
+        public Boolean visit(Operation<?> expr, Path<?> alias) {
+            return anyUses(expr.getArgs(), alias);
+        }
+
+        @Override
+        public Boolean visit(ParamExpression<?> expr, Path<?> alias) {
+            return false;
+        }
+
+        @Override
+        public Boolean visit(Path<?> expr, Path<?> alias) {
+            return alias.equals(expr.getRoot());
+        }
+
+        //서브쿼리가 바깥 alias를 참조(correlated)할 수도 있다.
+        //단, 서브쿼리가 같은 alias를 자기 from/join에 선언했으면 그건 서브쿼리 것이다.
+        @Override
+        public Boolean visit(SubQueryExpression<?> expr, Path<?> alias) {
+            for (JoinExpression join : expr.getMetadata().getJoins()) {
+                if (declares(join.getTarget(), alias)) {
+                    return false;
+                }
+            }
+            return uses(expr.getMetadata(), alias);
+        }
+
+        @Override
+        public Boolean visit(TemplateExpression<?> expr, Path<?> alias) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression<?> argExpr && uses(argExpr, alias)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        //from(team) 또는 join(member.team, team) -> member.team as team
+        private boolean declares(Expression<?> target, Path<?> alias) {
+            if (alias.equals(target)) {
+                return true;
+            }
+            return target instanceof Operation<?> operation
+                    && operation.getOperator() == Ops.ALIAS
+                    && alias.equals(operation.getArg(1));
+        }
+
+        private boolean anyUses(List<Expression<?>> args, Path<?> alias) {
+            for (Expression<?> arg : args) {
+                if (uses(arg, alias)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+}
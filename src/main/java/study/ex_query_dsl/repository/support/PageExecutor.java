@@ -0,0 +1,128 @@
+package study.ex_query_dsl.repository.support;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.config.ReplicationRoutingDataSource;
+import study.ex_query_dsl.statement.StatementCounter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 페이지 조회 = content 쿼리 + count 쿼리
+ * PageableExecutionUtils.getPage는 둘을 같은 EntityManager에서 차례로 실행하므로 응답 시간이 content + count 이다.
+ * querydsl.page.parallel=true 이면 count를 가상 스레드에서 자기 트랜잭션(자기 커넥션)으로 동시에 돌려서 max(content, count)가 된다.
+ *
+ * 호출한 쪽 트랜잭션이 있으면(쓰기/읽기 전용 모두) 그 안에서 차례로 실행한다.
+ * 다른 커넥션에서는 아직 커밋 안 된 변경이 안 보이고,
+ * 트랜잭션 커넥션을 문 채로 하나 더 기다리면 풀이 바닥났을 때 서로 기다리다 connectionTimeout이 난다.
+ * 트랜잭션 밖에서 호출되면 여기서 읽기 전용 트랜잭션을 연다. (replica가 있으면 replica로 간다)
+ * 병렬이면 content와 count가 각자 읽기 전용 트랜잭션을 쓰고, content 쪽은 끝나자마자 커넥션을 돌려준 뒤 count를 기다린다.
+ * 그래서 페이지 조회 메서드에는 @Transactional을 붙이지 않는다.
+ *
+ * OSIV(spring.jpa.open-in-view, 기본 켜짐) 요청에서는 항상 차례로 실행한다.
+ * 요청 EntityManager는 처음 잡은 커넥션을 요청이 끝날 때까지 물고 있어서(DELAYED_ACQUISITION_AND_HOLD)
+ * count 커넥션을 기다리는 동안 풀이 바닥나면 서로 기다리다 connectionTimeout이 난다.
+ * 웹 요청에서 병렬로 돌리려면 spring.jpa.open-in-view=false 로 둔다.
+ *
+ * 주의) 병렬이면 요청 하나가 커넥션을 2개 쓰므로 가상 스레드 모드의 ConnectionLimitFilter가 permit을 절반으로 잡는다.
+ */
+@Component
+public class PageExecutor {
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean parallel;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PageExecutor(EntityManager entityManager, EntityManagerFactory entityManagerFactory,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${querydsl.page.parallel:false}") boolean parallel) {
+        this.entityManager = entityManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.parallel = parallel;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @param content 페이징(offset/limit)까지 적용된 content 조회
+     * @param count   넘겨받은 EntityManager로 count를 센다. ex) em -> countQuery.clone(em).fetchOne()
+     */
+    public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, Function<EntityManager, Long> count) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, () -> count.apply(entityManager));
+        }
+        //OSIV로 요청 EntityManager가 바인딩되어 있으면 커넥션을 물고 있으니 차례로
+        if (!parallel || TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            return readOnlyTransaction.execute(status ->
+                    PageableExecutionUtils.getPage(content.get(), pageable, () -> count.apply(entityManager)));
+        }
+
+        //요청 카운터(StatementCountFilter)와 read-your-writes 고정을 count 스레드에도 넘겨준다.
+        StatementCounter counter = StatementCounter.current();
+        Long pinnedUntil = ReplicationRoutingDataSource.pinnedUntil();
+        CompletableFuture<Long> total = CompletableFuture.supplyAsync(() -> {
+            Runnable detachCounter = StatementCounter.attach(counter);
+            Runnable detachPin = ReplicationRoutingDataSource.attachPin(pinnedUntil);
+            try {
+                return readOnlyTransaction.execute(status -> count.apply(entityManager));
+            } finally {
+                detachPin.run();
+                detachCounter.run();
+            }
+        }, executor);
+        List<T> result;
+        try {
+            result = readOnlyTransaction.execute(status -> content.get());
+        } catch (RuntimeException e) {
+            total.cancel(false);
+            throw e;
+        }
+
+        //content만 보고 total을 알 수 있으면(첫 페이지가 다 안 찬 경우 등) count 결과는 버린다.
+        boolean[] used = {false};
+        Page<T> page = PageableExecutionUtils.getPage(result, pageable, () -> {
+            used[0] = true;
+            return join(total);
+        });
+        if (!used[0]) {
+            total.cancel(false);
+        }
+        return page;
+    }
+
+    private static Long join(CompletableFuture<Long> total) {
+        try {
+            return total.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+}
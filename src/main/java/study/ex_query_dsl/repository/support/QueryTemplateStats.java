@@ -0,0 +1,17 @@
+package study.ex_query_dsl.repository.support;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Querydsl4RepositorySupport 쿼리 템플릿 캐시 통계
+ * savedTime은 캐시 히트 때마다 해당 shape를 처음 만들 때 걸린 시간(조립 + JPQL 직렬화)을 더한 추정치다.
+ */
+@Data
+public class QueryTemplateStats {
+    private final long hits;
+    private final long misses;
+    private final int templates;
+    private final Duration savedTime;
+}
@@ -2,24 +2,49 @@ package study.ex_query_dsl.repository.support;
 
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.dml.DMLClause;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPADeleteClause;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
 import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
-import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.ex_query_dsl.event.EntityChangeTracker;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
@@ -33,6 +58,16 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private EntityChangeTracker entityChangeTracker;
+    private PageExecutor pageExecutor;
+    private int readOnlyFetchSize = 100;
+    private Duration readOnlyTimeout = Duration.ofSeconds(5);
+
+    //shape(어떤 조건이 들어왔는지) 별로 직렬화해둔 JPQL
+    private final Map<String, CompiledQuery> compiledQueries = new ConcurrentHashMap<>();
+    private final LongAdder templateHits = new LongAdder();
+    private final LongAdder templateMisses = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -52,11 +87,45 @@ public abstract class Querydsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired
+    public void setEntityChangeTracker(EntityChangeTracker entityChangeTracker) {
+        this.entityChangeTracker = entityChangeTracker;
+    }
+
+    @Autowired
+    public void setPageExecutor(PageExecutor pageExecutor) {
+        this.pageExecutor = pageExecutor;
+    }
+
+    @Autowired
+    public void setReadOnlyHints(@Value("${querydsl.read-only.fetch-size:100}") int fetchSize,
+                                 @Value("${querydsl.read-only.timeout:5s}") Duration timeout) {
+        this.readOnlyFetchSize = fetchSize;
+        this.readOnlyTimeout = timeout;
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        String repository = getClass().getSimpleName();
+        FunctionCounter.builder("querydsl.template.hits", templateHits, LongAdder::sum)
+                .tag("repository", repository)
+                .register(meterRegistry);
+        FunctionCounter.builder("querydsl.template.misses", templateMisses, LongAdder::sum)
+                .tag("repository", repository)
+                .register(meterRegistry);
+        FunctionCounter.builder("querydsl.template.saved", savedNanos, adder -> adder.sum() / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .tag("repository", repository)
+                .register(meterRegistry);
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(entityChangeTracker, "EntityChangeTracker must not be null!");
+        Assert.notNull(pageExecutor, "PageExecutor must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -79,23 +148,244 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * 조회만 하고 수정하지 않을 쿼리
+     * select/selectFrom과 같지만 readOnly()를 적용한다.
+     */
+    protected <T> JPAQuery<T> readOnlySelect(Expression<T> expr) {
+        return readOnly(select(expr));
+    }
+
+    protected <T> JPAQuery<T> readOnlySelectFrom(EntityPath<T> from) {
+        return readOnly(selectFrom(from));
+    }
+
+    /**
+     * - read only : 조회한 엔티티의 스냅샷을 만들지 않는다. (dirty checking 대상이 아님, 엔티티를 고쳐도 update가 안 나간다)
+     * - fetch size, timeout : querydsl.read-only.fetch-size, querydsl.read-only.timeout
+     * - comment : use_sql_comments가 켜져 있으면 SQL 앞에 리포지토리 이름이 찍힌다.
+     * flush는 그대로(AUTO) 둔다. 같은 트랜잭션에서 아직 flush 안 한 변경도 결과에 보인다.
+     * 쓰기 트랜잭션(OSIV 포함) 안에서 엔티티를 대량으로 읽을 때 효과가 크다. (readOnly 트랜잭션은 세션 전체가 이미 read only)
+     */
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, readOnlyFetchSize)
+                .setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, (int) readOnlyTimeout.toMillis())
+                .setHint(HibernateHints.HINT_COMMENT, "readOnly " + getClass().getSimpleName());
+    }
+
+    /**
+     * readOnly()에 FlushMode.MANUAL까지 : 쿼리 전에 영속성 컨텍스트를 flush 하지 않는다.
+     * 같은 트랜잭션에서 flush 안 한 변경은 결과에 안 보이니 그래도 되는 곳에서만 쓴다.
+     */
+    protected <T> JPAQuery<T> readOnlyWithoutFlush(JPAQuery<T> query) {
+        return readOnly(query)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
+
+    protected JPAUpdateClause update(EntityPath<?> path) {
+        return getQueryFactory().update(path);
+    }
+
+    protected JPADeleteClause delete(EntityPath<?> path) {
+        return getQueryFactory().delete(path);
+    }
+
+    /**
+     * 벌크 연산은 Hibernate 이벤트를 거치지 않으므로 실행 후 직접 변경을 알려준다.
+     * (검색 결과 캐시 등이 이걸 보고 무효화된다.)
+     * clause.execute()를 직접 부르지 말고 이걸 쓰자.
+     * 텍스트 인덱스(MemberTextIndex)에 들어가는 컬럼(회원명, 팀명)을 바꾸면 executeReindexing을 쓴다.
+     */
+    protected long execute(DMLClause<?> clause) {
+        long affected = clause.execute();
+        if (affected > 0) {
+            entityChangeTracker.changedByStatement(domainClass);
+        }
+        return affected;
+    }
+
+    /**
+     * 행 단위로 따라가는 인덱스의 컬럼을 바꾸는 벌크 연산. 어떤 행이 바뀌었는지 모르니 받는 쪽이 통째로 다시 읽는다.
+     */
+    protected long executeReindexing(DMLClause<?> clause) {
+        long affected = clause.execute();
+        if (affected > 0) {
+            entityChangeTracker.changedInBulk(domainClass);
+        }
+        return affected;
+    }
+
+    /**
+     * 결과를 한 번에 List로 만들지 않고 한 행씩 흘려보낸다.
+     * fetchSize만큼씩 JDBC에서 끊어서 가져오고, 엔티티 스냅샷을 만들지 않도록 read only로 조회한다.
+     * 반환된 Stream은 커넥션을 물고 있으니 반드시 트랜잭션 안에서 쓰고 close 해야 한다.
+     */
+    protected <T> Stream<T> stream(JPAQuery<T> query, int fetchSize) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .stream();
+    }
+
+    /**
+     * stream()을 끝까지 돌면서 fetchSize 행마다 영속성 컨텍스트를 비운다.
+     * 엔티티를 조회하더라도 1차 캐시가 계속 쌓이지 않아서 결과 건수와 상관없이 메모리가 일정하다.
+     *
+     * @return 처리한 행 수
+     */
+    protected <T> long forEachStreamed(JPAQuery<T> query, int fetchSize, Consumer<? super T> action) {
+        long count = 0;
+        try (Stream<T> stream = stream(query, fetchSize)) {
+            for (T row : (Iterable<T>) stream::iterator) {
+                action.accept(row);
+                if (++count % fetchSize == 0) {
+                    getEntityManager().clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 쿼리 템플릿 캐시
+     * 동적 쿼리는 어떤 조건이 들어왔는지(shape)만 다르고 나머지는 매번 같은데도,
+     * 호출할 때마다 BooleanExpression을 다시 조립하고 JPQL로 다시 직렬화한다.
+     * shape별로 직렬화한 JPQL을 한 번만 만들어두고, 호출할 때는 파라미터만 바인딩한다.
+     * (JPQL 문자열이 같으니 Hibernate 쿼리 플랜 캐시도 그대로 탄다.)
+     *
+     * @param queryName 같은 리포지토리 안에서 쿼리를 구분하는 이름
+     * @param shape     조건 조합. ex) MemberSearchCondition.shapeMask()
+     * @param template  값 대신 Param을 넣어서 만든 쿼리. 캐시에 없을 때만 호출된다.
+     * @param params    이번 호출에서 Param에 바인딩할 값
+     */
+    protected <T> List<T> fetchCompiled(String queryName, int shape,
+                                        Supplier<JPAQuery<T>> template,
+                                        Map<ParamExpression<?>, ?> params) {
+        String key = queryName + "#" + shape;
+        CompiledQuery compiled = compiledQueries.get(key);
+        if (compiled == null) {
+            templateMisses.increment();
+            compiled = compiledQueries.computeIfAbsent(key, k -> compile(template));
+        } else {
+            templateHits.increment();
+            savedNanos.add(compiled.compileNanos());
+        }
+
+        Query query = getEntityManager().createQuery(compiled.jpql());
+        List<Object> constants = compiled.constants();
+        for (int i = 0; i < constants.size(); i++) {
+            Object value = constants.get(i);
+            if (value instanceof ParamExpression<?> param) {
+                Assert.isTrue(params.containsKey(param), () -> "Param not set: " + param.getName());
+                value = params.get(param);
+            }
+            query.setParameter(i + 1, value);
+        }
+        return toResult(query.getResultList(), compiled.projection());
+    }
+
+    public QueryTemplateStats getTemplateStats() {
+        return new QueryTemplateStats(templateHits.sum(), templateMisses.sum(),
+                compiledQueries.size(), Duration.ofNanos(savedNanos.sum()));
+    }
+
+    //조립(template.get())부터 JPQL 직렬화까지 잰다.
+    private CompiledQuery compile(Supplier<? extends JPAQuery<?>> template) {
+        long start = System.nanoTime();
+        JPAQuery<?> query = template.get();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(getEntityManager()), getEntityManager());
+        serializer.serialize(query.getMetadata(), false, null);
+        Expression<?> projection = query.getMetadata().getProjection();
+        return new CompiledQuery(
+                serializer.toString(),
+                List.copyOf(serializer.getConstants()),
+                projection instanceof FactoryExpression<?> factory ? factory : null,
+                System.nanoTime() - start);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> toResult(List<?> rows, FactoryExpression<?> projection) {
+        if (projection == null) {
+            return (List<T>) rows;
+        }
+        //Querydsl이 하던 것처럼 select 결과(Object[])를 생성자에 넘겨서 DTO를 만든다.
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] args = row instanceof Object[] columns ? columns : new Object[]{row};
+            result.add((T) projection.newInstance(args));
+        }
+        return result;
+    }
+
+    private record CompiledQuery(String jpql, List<Object> constants,
+                                 FactoryExpression<?> projection, long compileNanos) {
+    }
+
+    //count는 PageExecutor가 다른 스레드에서 돌릴 수 있으니 content에 페이징을 적용하기 전에 만들어둔다.
+    //fetchCount 대신 CountQueryDeriver로 정렬, fetch join, 안 쓰는 조인을 뺀 count 쿼리를 만든다.
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory()); //apply() : 실행이 되는 것
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        Function<EntityManager, Long> count = CountQueryDeriver.derive(jpaQuery);
+        return pageExecutor.getPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch(),
+                count);
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+        Function<EntityManager, Long> count = CountQueryDeriver.derive(countQuery.apply(getQueryFactory()));
+        return pageExecutor.getPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch(),
+                count);
+    }
+
+    /**
+     * applyPagination의 Slice 버전 : count 쿼리 없이 size + 1개를 가져와서 다음 페이지가 있는지만 본다.
+     */
+    protected <T> Slice<T> applySlicing(Pageable pageable,
+                                        Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        if (pageable.isUnpaged()) {
+            List<T> content = getQuerydsl().applySorting(pageable.getSort(), jpaQuery).fetch();
+            return new SliceImpl<>(content, pageable, false);
+        }
+        List<T> content = getQuerydsl().applySorting(pageable.getSort(), jpaQuery)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * 지연 조인(deferred join) 페이징
+     * offset 페이징은 건너뛰는 행까지 전부 읽는데, 그 행마다 조인하고 select 컬럼을 다 만든다.
+     * 1) idQuery : id만 offset/limit으로 자른다. where/정렬 컬럼이 인덱스에 있으면 인덱스만 읽는다. (H2 보조 인덱스에는 PK가 들어 있다)
+     * 2) rowQuery : 그 페이지 id만 in으로 조회해서 실제 행을 만들고, 1)의 순서대로 다시 줄 세운다.
+     * 클라이언트가 아무 페이지로나 점프해야 해서 키셋 페이징을 쓸 수 없을 때 깊은 페이지 비용을 줄인다.
+     *
+     * @param id       id 컬럼. 같은 정렬값 안에서 순서가 흔들리지 않게 마지막 정렬 기준으로도 쓴다.
+     * @param idQuery  select(id).from().where() 까지. 정렬/페이징은 여기서 붙인다.
+     * @param rowQuery 페이지 id 목록으로 행 조회 ex) ids -> select(...).from(member).where(member.id.in(ids))
+     * @param rowId    결과 행의 id
+     */
+    protected <T, ID extends Comparable<? super ID>> Page<T> applyDeferredPagination(Pageable pageable,
+                                                                                    ComparableExpressionBase<ID> id,
+                                                                                    Function<JPAQueryFactory, JPAQuery<ID>> idQuery,
+                                                                                    Function<List<ID>, JPAQuery<T>> rowQuery,
+                                                                                    Function<T, ID> rowId) {
+        JPAQuery<ID> ids = idQuery.apply(getQueryFactory());
+        JPAQuery<Long> countQuery = ids.clone().select(id.count());
+        return pageExecutor.getPage(pageable,
+                () -> DeferredJoin.fetch(getQuerydsl().applyPagination(pageable, ids).orderBy(id.asc()), rowQuery, rowId),
+                em -> countQuery.clone(em).fetchOne());
     }
-}
\ No newline at end of file
+}
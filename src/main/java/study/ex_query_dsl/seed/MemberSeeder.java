@@ -0,0 +1,101 @@
+package study.ex_query_dsl.seed;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 팀 N개, 회원 M명을 넣는다.
+ * 회원은 batchSize 단위로 트랜잭션을 끊고, 끊을 때마다 flush/clear 한다.
+ * -> hibernate.jdbc.batch_size로 insert가 묶여서 나가고, 영속성 컨텍스트가 쌓이지 않아서 힙 사용량이 일정하다.
+ * id는 pooled 시퀀스(allocationSize)로 미리 받아두기 때문에 insert마다 시퀀스를 조회하지 않는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberSeeder {
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final SeedProperties properties;
+
+    public void seed() {
+        seed(properties.getTeams(), properties.getMembers());
+    }
+
+    public void seed(int teams, int members) {
+        long start = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(properties.getRandomSeed());
+        WeightedSampler teamSampler = WeightedSampler.zipf(teams, properties.getTeamSizeSkew());
+        AgeSampler ageSampler = new AgeSampler(properties.getAgeHistogram());
+
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(teams);
+            for (int i = 0; i < teams; i++) {
+                Team team = new Team(teamName(i));
+                em.persist(team);
+                ids.add(team.getId());
+            }
+            return ids;
+        });
+
+        int batchSize = properties.getBatchSize();
+        for (int from = 0; from < members; from += batchSize) {
+            int batchStart = from;
+            int end = Math.min(members, from + batchSize);
+            transactionTemplate.executeWithoutResult(status -> {
+                //넣는 족족 2차 캐시에 올리면 캐시만 계속 밀어낸다.
+                em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                for (int i = batchStart; i < end; i++) {
+                    Member member = new Member("member" + i, ageSampler.sample(random));
+                    //changeTeam()은 team.members 컬렉션을 초기화하기 때문에 프록시 참조만 걸어준다.
+                    member.setTeam(em.getReference(Team.class, teamIds.get(teamSampler.sample(random))));
+                    em.persist(member);
+                }
+                em.flush();
+                em.clear();
+            });
+            if (end % (batchSize * 100) == 0) {
+                log.info("seeded {} / {} members", end, members);
+            }
+        }
+        log.info("seeded {} teams, {} members in {} ms", teams, members, System.currentTimeMillis() - start);
+    }
+
+    //teamA ~ teamZ, 그 이후는 team26, team27 ...
+    static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    private static class AgeSampler {
+        private final List<SeedProperties.AgeBucket> buckets;
+        private final WeightedSampler bucketSampler;
+
+        AgeSampler(List<SeedProperties.AgeBucket> histogram) {
+            if (histogram.isEmpty()) {
+                SeedProperties.AgeBucket all = new SeedProperties.AgeBucket();
+                all.setMin(0);
+                all.setMax(99);
+                histogram = List.of(all);
+            }
+            this.buckets = histogram;
+            this.bucketSampler = new WeightedSampler(histogram.stream()
+                    .mapToDouble(SeedProperties.AgeBucket::getWeight)
+                    .toArray());
+        }
+
+        int sample(SplittableRandom random) {
+            SeedProperties.AgeBucket bucket = buckets.get(bucketSampler.sample(random));
+            return random.nextInt(bucket.getMin(), bucket.getMax() + 1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package study.ex_query_dsl.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 초기 데이터 설정 (seed.*)
+ * 대량으로 넣을 때는 SQL 로그(show_sql, p6spy)를 꺼야 제 속도가 나온다.
+ * ex) seed.members=10000000 decorator.datasource.p6spy.enable-logging=false spring.jpa.properties.hibernate.show_sql=false
+ */
+@Getter
+@Setter
+@ConfigurationProperties("seed")
+public class SeedProperties {
+    private int teams = 2;
+    private int members = 100;
+
+    //flush/clear + 커밋 단위
+    private int batchSize = 1000;
+
+    //팀 크기 분포(Zipf 지수). 0이면 모든 팀이 비슷한 크기, 클수록 앞쪽 팀에 몰린다.
+    private double teamSizeSkew = 0.0;
+
+    //나이 분포. 비어있으면 0 ~ 99 균등
+    private List<AgeBucket> ageHistogram = new ArrayList<>();
+
+    private long randomSeed = 42L;
+
+    @Getter
+    @Setter
+    public static class AgeBucket {
+        private int min;
+        private int max;
+        private double weight = 1.0;
+    }
+}
@@ -0,0 +1,47 @@
+package study.ex_query_dsl.seed;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * 가중치 배열에서 인덱스를 뽑는다. (누적합 + 이진 탐색, 한 번 뽑는 데 O(log n))
+ */
+class WeightedSampler {
+    private final double[] cumulative;
+
+    WeightedSampler(double[] weights) {
+        cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+    }
+
+    /**
+     * k번째(0부터) 항목의 가중치가 1 / (k + 1)^exponent
+     */
+    static WeightedSampler zipf(int size, double exponent) {
+        double[] weights = new double[size];
+        for (int k = 0; k < size; k++) {
+            weights[k] = 1.0 / Math.pow(k + 1, exponent);
+        }
+        return new WeightedSampler(weights);
+    }
+
+    int sample(RandomGenerator random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        //cumulative[i] > target 인 첫 i. (k번째 항목의 구간은 [cumulative[k-1], cumulative[k]))
+        //Arrays.binarySearch는 경계값에 딱 맞으면 가중치 0인 항목을 돌려줄 수 있다.
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] <= target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,29 @@
+package study.ex_query_dsl.statement;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * 리포지토리 메서드 안에서 나간 SQL에 "MemberRepository.search" 같은 태그를 붙인다.
+ * 카운터가 열려 있지 않으면 아무것도 하지 않는다.
+ */
+@Aspect
+@Component
+public class RepositoryMethodTagger {
+
+    @Around("execution(* study.ex_query_dsl.repository..*(..))")
+    public Object tag(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (StatementCounter.current() == null) {
+            return joinPoint.proceed();
+        }
+        StatementCounter.enter(joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            StatementCounter.exit();
+        }
+    }
+}
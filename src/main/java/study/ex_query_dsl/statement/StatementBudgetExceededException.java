@@ -0,0 +1,8 @@
+package study.ex_query_dsl.statement;
+
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(int budget, String tag, String sql) {
+        super("SQL statement budget(" + budget + ") exceeded at " + tag + ": " + sql);
+    }
+}
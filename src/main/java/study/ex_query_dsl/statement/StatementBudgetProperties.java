@@ -0,0 +1,28 @@
+package study.ex_query_dsl.statement;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 요청당 SQL 수 제한 (sql.statements.*)
+ */
+@Getter
+@Setter
+@ConfigurationProperties("sql.statements")
+public class StatementBudgetProperties {
+    private boolean enabled = true;
+
+    //요청 하나에서 허용하는 SQL 수, 0이면 제한 없음
+    private int budget = 50;
+
+    //LOG : 넘으면 경고 로그, FAIL : 넘는 순간 예외
+    private Mode mode = Mode.LOG;
+
+    //같은 SQL이 이만큼 반복되면 N+1로 보고 경고
+    private int repeatThreshold = 5;
+
+    public enum Mode {
+        LOG, FAIL
+    }
+}
@@ -0,0 +1,84 @@
+package study.ex_query_dsl.statement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 요청마다 StatementCounter를 열고, 끝나면
+ * - 엔드포인트별 SQL 수 히스토그램(http.server.requests.statements)을 남기고
+ * - budget을 넘었거나 같은 SQL이 반복(N+1)되면 어떤 리포지토리 메서드에서 나갔는지 경고한다.
+ * FAIL 모드에서는 budget을 넘는 SQL을 실행하려는 순간 StatementBudgetExceededException이 난다.
+ */
+@Slf4j
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+    private final StatementBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public StatementCountFilter(StatementBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean fail = properties.getMode() == StatementBudgetProperties.Mode.FAIL;
+        try (StatementCounter counter = StatementCounter.open(properties.getBudget(), fail)) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                report(request, counter);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    private void report(HttpServletRequest request, StatementCounter counter) {
+        String uri = uri(request);
+        DistributionSummary.builder("http.server.requests.statements")
+                .description("요청 하나에서 실행된 SQL 수")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(counter.getCount());
+
+        if (counter.isOverBudget()) {
+            log.warn("{} {} executed {} statements (budget {}) {}",
+                    request.getMethod(), uri, counter.getCount(), counter.getBudget(), counter.getCountsByTag());
+        }
+
+        Map<String, Integer> repeated = counter.getRepeated(properties.getRepeatThreshold());
+        repeated.forEach((sql, n) -> {
+            log.warn("possible N+1 in {} {} at {}: {} times [{}]", request.getMethod(), uri, counter.getTag(sql), n, sql);
+            Counter.builder("sql.n_plus_one")
+                    .tag("uri", uri)
+                    .tag("repository", counter.getTag(sql))
+                    .register(meterRegistry)
+                    .increment();
+        });
+    }
+
+    //매칭된 핸들러 패턴 (/v1/members), 매칭이 안 됐으면 UNKNOWN
+    private String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
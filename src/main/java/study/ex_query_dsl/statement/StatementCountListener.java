@@ -0,0 +1,19 @@
+package study.ex_query_dsl.statement;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * p6spy가 감싼 DataSource에서 SQL이 실행되기 직전에 불린다.
+ * (p6spy-spring-boot-starter가 JdbcEventListener 빈을 자동으로 등록한다)
+ * 실행 전에 세야 budget 초과 시 SQL을 보내기 전에 막을 수 있다.
+ */
+@Component
+public class StatementCountListener extends JdbcEventListener {
+
+    @Override
+    public void onBeforeAnyExecute(StatementInformation statementInformation) {
+        StatementCounter.record(statementInformation.getSql());
+    }
+}
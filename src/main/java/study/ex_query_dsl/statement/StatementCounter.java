@@ -0,0 +1,158 @@
+package study.ex_query_dsl.statement;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 현재 스레드에서 실행된 SQL 수를 센다. (StatementCountListener가 p6spy에서 불러준다)
+ * 요청 단위는 StatementCountFilter가 열고, 테스트에서는 직접 열어서 쓴다.
+ *
+ * ex)
+ * try (StatementCounter counter = StatementCounter.open()) {
+ *     memberRepository.search(condition);
+ *     assertThat(counter.getCount()).isEqualTo(1);
+ * }
+ *
+ * 같은 SQL이 여러 번 나가면 N+1을 의심한다. (getRepeated)
+ */
+public final class StatementCounter implements AutoCloseable {
+    public static final String UNTAGGED = "-";
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final StatementCounter parent;
+    private final int budget;
+    private final boolean failOverBudget;
+
+    private final Map<String, Integer> countsBySql = new LinkedHashMap<>();
+    private final Map<String, Integer> countsByTag = new LinkedHashMap<>();
+    private final Map<String, String> tagBySql = new LinkedHashMap<>();
+    private final Deque<String> tags = new ArrayDeque<>();
+    private int count;
+
+    private StatementCounter(StatementCounter parent, int budget, boolean failOverBudget) {
+        this.parent = parent;
+        this.budget = budget;
+        this.failOverBudget = failOverBudget;
+    }
+
+    public static StatementCounter open() {
+        return open(0, false);
+    }
+
+    /**
+     * @param budget         0 이하면 제한 없음
+     * @param failOverBudget budget을 넘는 SQL을 실행하려고 하면 StatementBudgetExceededException
+     */
+    public static StatementCounter open(int budget, boolean failOverBudget) {
+        StatementCounter counter = new StatementCounter(CURRENT.get(), budget, failOverBudget);
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public static StatementCounter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 다른 스레드(PageExecutor의 count 등)에서 실행되는 SQL도 같은 카운터에 잡히게 한다.
+     */
+    public static Runnable attach(StatementCounter counter) {
+        StatementCounter previous = CURRENT.get();
+        CURRENT.set(counter);
+        return () -> CURRENT.set(previous);
+    }
+
+    static void enter(String tag) {
+        StatementCounter counter = CURRENT.get();
+        if (counter != null) {
+            counter.pushTag(tag);
+        }
+    }
+
+    static void exit() {
+        StatementCounter counter = CURRENT.get();
+        if (counter != null) {
+            counter.popTag();
+        }
+    }
+
+    static void record(String sql) {
+        StatementCounter counter = CURRENT.get();
+        if (counter != null) {
+            counter.add(sql, counter.currentTag());
+        }
+    }
+
+    private synchronized void pushTag(String tag) {
+        tags.push(tag);
+    }
+
+    private synchronized void popTag() {
+        tags.poll();
+    }
+
+    //가장 바깥에서 호출된 리포지토리 메서드 (서비스/컨트롤러가 부른 메서드)
+    private synchronized String currentTag() {
+        String tag = tags.peekLast();
+        if (tag == null && parent != null) {
+            return parent.currentTag();
+        }
+        return tag != null ? tag : UNTAGGED;
+    }
+
+    private synchronized void add(String sql, String tag) {
+        if (failOverBudget && budget > 0 && count >= budget) {
+            throw new StatementBudgetExceededException(budget, tag, sql);
+        }
+        count++;
+        countsBySql.merge(sql, 1, Integer::sum);
+        countsByTag.merge(tag, 1, Integer::sum);
+        tagBySql.putIfAbsent(sql, tag);
+        if (parent != null) {
+            parent.add(sql, tag);
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized boolean isOverBudget() {
+        return budget > 0 && count > budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public synchronized Map<String, Integer> getCountsByTag() {
+        return new LinkedHashMap<>(countsByTag);
+    }
+
+    /**
+     * threshold번 이상 똑같이 나간 SQL (파라미터만 다른 같은 쿼리) -> N+1 의심
+     */
+    public synchronized Map<String, Integer> getRepeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        countsBySql.forEach((sql, n) -> {
+            if (n >= threshold) {
+                repeated.put(sql, n);
+            }
+        });
+        return repeated;
+    }
+
+    public synchronized String getTag(String sql) {
+        return tagBySql.getOrDefault(sql, UNTAGGED);
+    }
+
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.set(parent);
+        }
+    }
+}
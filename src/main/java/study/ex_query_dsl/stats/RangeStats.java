@@ -0,0 +1,18 @@
+package study.ex_query_dsl.stats;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * member_id 구간 하나의 팀별 집계 (TeamStatsTable.readRange)
+ */
+public record RangeStats(Map<Long, Team> teams) {
+
+    record Team(long memberCount, long ageSum, int minAge, int maxAge, long[] buckets) {
+
+        boolean sameAs(Team other) {
+            return other != null && memberCount == other.memberCount && ageSum == other.ageSum
+                    && minAge == other.minAge && maxAge == other.maxAge && Arrays.equals(buckets, other.buckets);
+        }
+    }
+}
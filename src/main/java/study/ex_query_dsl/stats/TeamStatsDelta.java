@@ -0,0 +1,40 @@
+package study.ex_query_dsl.stats;
+
+import study.ex_query_dsl.entity.TeamStats;
+
+/**
+ * 한 트랜잭션 동안 팀 하나에 생긴 변화량
+ */
+class TeamStatsDelta {
+    long memberCount;
+    long ageSum;
+    final long[] buckets = new long[TeamStats.BUCKETS];
+    Integer addedMin;
+    Integer addedMax;
+
+    //빠진 회원이 있으면 min/max는 더하기 빼기로 알 수 없어서, 빠진 나이가 지금 min/max와 같을 때 다시 계산한다.
+    boolean removed;
+    Integer removedMin;
+    Integer removedMax;
+
+    void add(int age) {
+        memberCount++;
+        ageSum += age;
+        buckets[TeamStats.bucket(age)]++;
+        addedMin = addedMin == null ? age : Math.min(addedMin, age);
+        addedMax = addedMax == null ? age : Math.max(addedMax, age);
+    }
+
+    void remove(int age) {
+        memberCount--;
+        ageSum -= age;
+        buckets[TeamStats.bucket(age)]--;
+        removed(age, age);
+    }
+
+    void removed(int min, int max) {
+        removed = true;
+        removedMin = removedMin == null ? min : Math.min(removedMin, min);
+        removedMax = removedMax == null ? max : Math.max(removedMax, max);
+    }
+}
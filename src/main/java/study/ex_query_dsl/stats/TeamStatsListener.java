@@ -0,0 +1,153 @@
+package study.ex_query_dsl.stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member insert/update(나이, changeTeam)/delete 이벤트를 팀별 변화량으로 모아 두었다가
+ * 커밋 직전(마지막 flush 뒤)에 같은 커넥션으로 team_stats에 한 번에 반영한다.
+ * 롤백되면 모아둔 변화량은 버린다.
+ *
+ * 벌크 연산(JPQL update/delete)은 이벤트가 안 나오므로 MemberBulkRepository가 chunk 구간의 전후 집계 차이를 반영한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamStatsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private final EntityManagerFactory entityManagerFactory;
+
+    //세션(트랜잭션)별로 모으는 중인 변화량
+    private final Map<SharedSessionContractImplementor, Pending> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getState());
+            if (teamId != null) {
+                deltas(event.getSession()).computeIfAbsent(teamId, id -> new TeamStatsDelta())
+                        .add(age(event.getPersister(), event.getState()));
+            }
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] oldState = event.getOldState();
+        Long newTeamId = teamId(persister, event.getState());
+        if (oldState == null) {
+            //이전 상태를 모르면(detached 엔티티 update) 어느 팀에서 빠졌는지 모르니 전체를 다시 집계한다.
+            pending(event.getSession()).rebuildAll = true;
+            return;
+        }
+        Long oldTeamId = teamId(persister, oldState);
+        int oldAge = age(persister, oldState);
+        int newAge = age(persister, event.getState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        Map<Long, TeamStatsDelta> deltas = deltas(event.getSession());
+        if (oldTeamId != null) {
+            deltas.computeIfAbsent(oldTeamId, id -> new TeamStatsDelta()).remove(oldAge);
+        }
+        if (newTeamId != null) {
+            deltas.computeIfAbsent(newTeamId, id -> new TeamStatsDelta()).add(newAge);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getDeletedState());
+            if (teamId != null) {
+                deltas(event.getSession()).computeIfAbsent(teamId, id -> new TeamStatsDelta())
+                        .remove(age(event.getPersister(), event.getDeletedState()));
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private Map<Long, TeamStatsDelta> deltas(EventSource session) {
+        return pending(session).deltas;
+    }
+
+    //세션에서 처음 변경이 생겼을 때 커밋 직전/완료 후 콜백을 건다.
+    private Pending pending(EventSource session) {
+        return pending.computeIfAbsent(session, s -> {
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::flushDeltas);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(completed));
+            return new Pending();
+        });
+    }
+
+    private void flushDeltas(SharedSessionContractImplementor session) {
+        Pending changes = pending.remove(session);
+        if (changes == null || (changes.deltas.isEmpty() && !changes.rebuildAll)) {
+            return;
+        }
+        session.doWork(connection -> {
+            if (changes.rebuildAll) {
+                TeamStatsTable.rebuildAll(connection);
+            } else {
+                TeamStatsTable.applyDeltas(connection, changes.deltas);
+            }
+        });
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.findAttributeMapping("team").getStateArrayPosition()];
+        if (team instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getInternalIdentifier();
+        }
+        return team instanceof Team found ? found.getId() : null;
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.findAttributeMapping("age").getStateArrayPosition()];
+    }
+
+    private static class Pending {
+        final Map<Long, TeamStatsDelta> deltas = new HashMap<>();
+        boolean rebuildAll;
+    }
+}
@@ -0,0 +1,261 @@
+package study.ex_query_dsl.stats;
+
+import study.ex_query_dsl.entity.TeamStats;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * team_stats 테이블에 직접 쓰는 SQL 모음 (JDBC)
+ * Hibernate 쿼리로 쓰면 flush/2차 캐시 무효화가 같이 일어나므로 커넥션에 바로 쓴다.
+ */
+public final class TeamStatsTable {
+
+    private static final String BUCKET_COLUMNS;
+    private static final String BUCKET_INCREMENTS;
+    private static final String BUCKET_AGGREGATES;
+
+    static {
+        List<String> columns = new ArrayList<>();
+        List<String> increments = new ArrayList<>();
+        List<String> aggregates = new ArrayList<>();
+        for (int i = 0; i < TeamStats.BUCKETS; i++) {
+            columns.add("bucket" + i);
+            increments.add("bucket" + i + " = bucket" + i + " + ?");
+            String range = i == 0 ? "age < 10"
+                    : i == TeamStats.BUCKETS - 1 ? "age >= " + i * 10
+                    : "age >= " + i * 10 + " and age < " + (i + 1) * 10;
+            aggregates.add("coalesce(sum(case when " + range + " then 1 else 0 end), 0)");
+        }
+        BUCKET_COLUMNS = String.join(", ", columns);
+        BUCKET_INCREMENTS = String.join(", ", increments);
+        BUCKET_AGGREGATES = String.join(", ", aggregates);
+    }
+
+    private static final String APPLY_DELTA = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?, "
+            + BUCKET_INCREMENTS + ", "
+            //새로 들어온 나이의 min/max (없으면 null)
+            + "min_age = case when cast(? as integer) is null then min_age "
+            + "when min_age is null or min_age > cast(? as integer) then cast(? as integer) else min_age end, "
+            + "max_age = case when cast(? as integer) is null then max_age "
+            + "when max_age is null or max_age < cast(? as integer) then cast(? as integer) else max_age end "
+            + "where team_id = ?";
+
+    //빠진 나이가 지금 min/max 이상/이하일 때만 (그 값을 가진 행이 빠졌을 수 있다)
+    private static final String RECOMPUTE_MIN_MAX = "update team_stats set "
+            + "min_age = case when min_age >= cast(? as integer) then (select min(age) from member where team_id = ?) else min_age end, "
+            + "max_age = case when max_age <= cast(? as integer) then (select max(age) from member where team_id = ?) else max_age end "
+            + "where team_id = ? and (min_age >= cast(? as integer) or max_age <= cast(? as integer))";
+
+    private static final String AGGREGATE = "team_id, count(*), coalesce(sum(age), 0), min(age), max(age), " + BUCKET_AGGREGATES
+            + " from member";
+
+    private static final String COLUMNS = "(team_id, member_count, age_sum, min_age, max_age, " + BUCKET_COLUMNS + ") ";
+
+    private static final String INSERT = "insert into team_stats " + COLUMNS;
+
+    private static final String RANGE_AGGREGATE = "select " + AGGREGATE
+            + " where member_id between ? and ? and team_id is not null group by team_id";
+
+    private static final String LOCK_RANGE = "select member_id from member where member_id between ? and ? for update";
+
+    //행이 있으면 덮어쓰고 없으면 넣는다. (H2)
+    private static final String MERGE = "merge into team_stats " + COLUMNS + "key(team_id) ";
+
+    private static final String DUPLICATE_KEY = "23505";
+
+    private TeamStatsTable() {
+    }
+
+    /**
+     * 팀별 변화량을 반영한다. (팀마다 update 한 번, 빠진 회원이 min/max였을 수 있는 팀은 재계산 한 번 더)
+     * 아직 통계 행이 없는 팀은 member 테이블에서 새로 집계한다.
+     */
+    static void applyDeltas(Connection connection, Map<Long, TeamStatsDelta> deltas) throws SQLException {
+        List<Long> teamIds = new ArrayList<>(deltas.keySet());
+        int[] updated;
+        try (PreparedStatement ps = connection.prepareStatement(APPLY_DELTA)) {
+            for (Long teamId : teamIds) {
+                TeamStatsDelta delta = deltas.get(teamId);
+                int i = 1;
+                ps.setLong(i++, delta.memberCount);
+                ps.setLong(i++, delta.ageSum);
+                for (long bucket : delta.buckets) {
+                    ps.setLong(i++, bucket);
+                }
+                for (Integer value : new Integer[]{delta.addedMin, delta.addedMin, delta.addedMin,
+                        delta.addedMax, delta.addedMax, delta.addedMax}) {
+                    ps.setObject(i++, value, Types.INTEGER);
+                }
+                ps.setLong(i, teamId);
+                ps.addBatch();
+            }
+            updated = ps.executeBatch();
+        }
+
+        List<Long> missing = new ArrayList<>();
+        List<Long> recompute = new ArrayList<>();
+        for (int i = 0; i < teamIds.size(); i++) {
+            if (updated[i] == 0) {
+                missing.add(teamIds.get(i));
+            } else if (deltas.get(teamIds.get(i)).removed) {
+                recompute.add(teamIds.get(i));
+            }
+        }
+
+        if (!recompute.isEmpty()) {
+            try (PreparedStatement ps = connection.prepareStatement(RECOMPUTE_MIN_MAX)) {
+                for (Long teamId : recompute) {
+                    TeamStatsDelta delta = deltas.get(teamId);
+                    ps.setInt(1, delta.removedMin);
+                    ps.setLong(2, teamId);
+                    ps.setInt(3, delta.removedMax);
+                    ps.setLong(4, teamId);
+                    ps.setLong(5, teamId);
+                    ps.setInt(6, delta.removedMin);
+                    ps.setInt(7, delta.removedMax);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (!missing.isEmpty()) {
+            rebuild(connection, missing);
+        }
+    }
+
+    /**
+     * 지정한 팀의 통계를 member 테이블에서 다시 집계한다. (인덱스 team_id, age를 탄다)
+     * 행이 없던 팀은 새로 넣는다. 같은 팀에 첫 회원이 동시에 들어와 다른 트랜잭션이 먼저 행을 넣었으면
+     * 이 문장만 되돌리고 다시 집계해서 덮어쓴다. (호출한 쪽 트랜잭션은 롤백되지 않는다)
+     */
+    public static void rebuild(Connection connection, Collection<Long> teamIds) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            merge(connection, teamIds);
+        } catch (SQLException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            //먼저 넣은 쪽이 커밋됐으니 이번에는 update가 된다.
+            connection.rollback(savepoint);
+            merge(connection, teamIds);
+        }
+        connection.releaseSavepoint(savepoint);
+    }
+
+    private static void merge(Connection connection, Collection<Long> teamIds) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                MERGE + "select " + AGGREGATE.replaceFirst("team_id", "?") + " where team_id = ?")) {
+            for (Long teamId : teamIds) {
+                ps.setLong(1, teamId);
+                ps.setLong(2, teamId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        //배치 실패는 BatchUpdateException 뒤에 원래 예외가 붙어 온다.
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if (DUPLICATE_KEY.equals(next.getSQLState())
+                    || next.getCause() instanceof SQLException cause && DUPLICATE_KEY.equals(cause.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * member_id 구간의 팀별 집계. 벌크 연산 전후로 읽어서 applyRangeChange에 넘긴다.
+     *
+     * @param lock true면 구간의 행을 잠근다. (전후 사이에 다른 트랜잭션이 바꾸면 그 변화가 두 번 반영되니까)
+     */
+    public static RangeStats readRange(Connection connection, long fromId, long toId, boolean lock) throws SQLException {
+        if (lock) {
+            try (PreparedStatement ps = connection.prepareStatement(LOCK_RANGE)) {
+                ps.setLong(1, fromId);
+                ps.setLong(2, toId);
+                ps.executeQuery().close();
+            }
+        }
+        Map<Long, RangeStats.Team> teams = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(RANGE_AGGREGATE)) {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long[] buckets = new long[TeamStats.BUCKETS];
+                    for (int i = 0; i < buckets.length; i++) {
+                        buckets[i] = rs.getLong(6 + i);
+                    }
+                    teams.put(rs.getLong(1), new RangeStats.Team(rs.getLong(2), rs.getLong(3), rs.getInt(4), rs.getInt(5), buckets));
+                }
+            }
+        }
+        return new RangeStats(teams);
+    }
+
+    /**
+     * 같은 member_id 구간을 바꾸기 전(before)과 후(after)의 팀별 집계 차이만 반영한다.
+     * 구간 안에서 안 바뀐 행은 전후가 같아서 지워지므로 바뀐 행만 남는다.
+     * 바뀌기 전 구간에 팀의 min/max와 같은 나이가 있었을 때만 min/max를 다시 계산한다.
+     */
+    public static void applyRangeChange(Connection connection, RangeStats before, RangeStats after) throws SQLException {
+        Set<Long> teamIds = new HashSet<>(before.teams().keySet());
+        teamIds.addAll(after.teams().keySet());
+        Map<Long, TeamStatsDelta> deltas = new HashMap<>();
+        for (Long teamId : teamIds) {
+            RangeStats.Team old = before.teams().get(teamId);
+            RangeStats.Team now = after.teams().get(teamId);
+            if (old != null && old.sameAs(now)) {
+                continue;
+            }
+            TeamStatsDelta delta = new TeamStatsDelta();
+            if (now != null) {
+                delta.memberCount += now.memberCount();
+                delta.ageSum += now.ageSum();
+                for (int i = 0; i < TeamStats.BUCKETS; i++) {
+                    delta.buckets[i] += now.buckets()[i];
+                }
+                delta.addedMin = now.minAge();
+                delta.addedMax = now.maxAge();
+            }
+            if (old != null) {
+                delta.memberCount -= old.memberCount();
+                delta.ageSum -= old.ageSum();
+                for (int i = 0; i < TeamStats.BUCKETS; i++) {
+                    delta.buckets[i] -= old.buckets()[i];
+                }
+                delta.removed(old.minAge(), old.maxAge());
+            }
+            deltas.put(teamId, delta);
+        }
+        if (!deltas.isEmpty()) {
+            applyDeltas(connection, deltas);
+        }
+    }
+
+    /**
+     * 전체 재집계 (통계가 틀어졌을 때, 대량 적재 후)
+     */
+    public static void rebuildAll(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("delete from team_stats");
+            statement.executeUpdate(INSERT + "select " + AGGREGATE + " where team_id is not null group by team_id");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package study.ex_query_dsl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.event.EntityChangeTracker;
+
+/**
+ * 데이터를 커밋하는 테스트가 끝나고 회원/팀/팀 통계를 지운다. (@AfterEach에서 호출)
+ */
+@Component
+@RequiredArgsConstructor
+public class TestDataCleaner {
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityChangeTracker entityChangeTracker;
+
+    public void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            em.createNativeQuery("delete from team_stats").executeUpdate();
+            //JPQL 벌크 삭제는 Hibernate 이벤트가 안 나가므로 직접 알려준다.
+            //캐시, TeamNameDictionary에 더해 텍스트/컬럼 인덱스도 통째로 다시 만들도록 벌크로 알린다.
+            entityChangeTracker.changedInBulk(Member.class);
+            entityChangeTracker.changedInBulk(Team.class);
+        });
+    }
+}
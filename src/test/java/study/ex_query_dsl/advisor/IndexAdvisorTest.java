@@ -0,0 +1,58 @@
+package study.ex_query_dsl.advisor;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    IndexAdvisor indexAdvisor;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+    }
+
+    @Test
+    public void usernameSearchUsesIndex() {
+        List<IndexAdvice> advices = indexAdvisor.advise(MemberSearchCondition.USERNAME);
+
+        assertThat(advices).isNotEmpty();
+        for (IndexAdvice advice : advices) {
+            System.out.println(advice.getQuery() + " [" + advice.getShape() + "] " + advice.getPlan());
+            assertThat(advice.getScannedTables()).noneMatch(table -> table.toUpperCase().endsWith("MEMBER"));
+        }
+    }
+
+    @Test
+    public void printAllShapes() {
+        for (IndexAdvice advice : indexAdvisor.advise()) {
+            if (advice.isNeedsIndex()) {
+                System.out.println("scan! " + advice.getQuery() + " [" + advice.getShape() + "] " + advice.getScannedTables());
+            }
+        }
+    }
+}
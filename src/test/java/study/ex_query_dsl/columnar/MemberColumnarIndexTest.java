@@ -0,0 +1,165 @@
+package study.ex_query_dsl.columnar;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberBulkRepository;
+import study.ex_query_dsl.repository.MemberTestRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스 결과가 JPA로 조회한 결과(MemberTestRepository.search)와 같은지 본다.
+ * 인덱스는 커밋된 데이터만 보므로 테스트 데이터도 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.index.enabled=true")
+class MemberColumnarIndexTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberColumnarIndex memberColumnarIndex;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 50; i++) {
+                Team selected = i % 5 == 0 ? null : (i % 2 == 0 ? teamA : teamB);
+                em.persist(new Member("member" + (i % 20), i, selected));
+            }
+        });
+        memberColumnarIndex.rebuild();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void sameAsJpa() {
+        for (MemberSearchCondition condition : conditions()) {
+            List<MemberTeamDto> expected = memberTestRepository.search(condition);
+            List<MemberTeamDto> actual = memberColumnarIndex.search(condition).orElseThrow();
+            assertThat(actual).as(condition.toString()).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void pagesCoverSameRows() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        condition.setAgeLoe(44);
+        List<MemberTeamDto> expected = memberTestRepository.search(condition);
+
+        List<MemberTeamDto> paged = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            Page<MemberTeamDto> result = memberColumnarIndex.searchPage(condition, PageRequest.of(page, 7)).orElseThrow();
+            assertThat(result.getTotalElements()).isEqualTo(expected.size());
+            paged.addAll(result.getContent());
+            if (!result.hasNext()) {
+                break;
+            }
+        }
+        assertThat(paged).containsExactlyInAnyOrderElementsOf(expected);
+        //정렬이 있으면 인덱스는 쓰지 않는다.
+        assertThat(memberColumnarIndex.searchPage(condition, PageRequest.of(0, 7, Sort.by("age")))).isEmpty();
+    }
+
+    @Test
+    public void rowChangesWithoutReload() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.persist(new Member("newMember", 99, teamA));
+            em.persist(new Member("member3", 7, teamC));
+            List<Member> members = em.createQuery("select m from Member m order by m.id", Member.class).getResultList();
+            members.get(1).setAge(100);
+            members.get(2).changeTeam(teamA);
+            em.remove(members.get(3));
+        });
+
+        //다시 만들지 않아도 커밋된 행이 보인다. (오버레이)
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("newMember");
+        assertThat(memberColumnarIndex.search(condition).orElseThrow()).extracting("age").containsExactly(99);
+        sameAsJpa();
+        pagesCoverSameRows();
+    }
+
+    @Test
+    public void reloadAfterBulkOrTeamRename() {
+        memberBulkRepository.addAge(new MemberSearchCondition(), 1, MemberBulkRepository.DEFAULT_CHUNK_SIZE);
+        //벌크 연산은 어떤 행이 바뀌었는지 모르니 다시 만들어질 때까지 DB로 간다. 어느 쪽이든 결과는 DB와 같다.
+        sameAsJpaOrFallback();
+        memberColumnarIndex.rebuild();
+        sameAsJpa();
+
+        //팀 이름이 바뀌면 그 팀 회원이 전부 바뀌므로 다시 읽는다.
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult().setName("teamZ"));
+        sameAsJpaOrFallback();
+        memberColumnarIndex.rebuild();
+        sameAsJpa();
+    }
+
+    private void sameAsJpaOrFallback() {
+        for (MemberSearchCondition condition : conditions()) {
+            List<MemberTeamDto> expected = memberTestRepository.search(condition);
+            memberColumnarIndex.search(condition).ifPresent(actual ->
+                    assertThat(actual).as(condition.toString()).containsExactlyInAnyOrderElementsOf(expected));
+        }
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (String username : new String[]{null, "member3", "unknown"}) {
+            for (String teamName : new String[]{null, "teamA", "teamB", "teamC", "teamZ"}) {
+                for (Integer ageGoe : new Integer[]{null, 10, 45}) {
+                    for (Integer ageLoe : new Integer[]{null, 30, 5}) {
+                        MemberSearchCondition condition = new MemberSearchCondition();
+                        condition.setUsername(username);
+                        condition.setTeamName(teamName);
+                        condition.setAgeGoe(ageGoe);
+                        condition.setAgeLoe(ageLoe);
+                        conditions.add(condition);
+                    }
+                }
+            }
+        }
+        return conditions;
+    }
+}
@@ -0,0 +1,67 @@
+package study.ex_query_dsl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionLimitFilterTest {
+
+    @Test
+    public void rejectWhenPermitsExhausted() throws Exception {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(1, Duration.ofMillis(100));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //첫 요청이 permit을 물고 있는 동안
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/v3/members"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        entered.await();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/v3/members"), rejected, new MockFilterChain());
+        assertThat(rejected.getStatus()).isEqualTo(503);
+
+        //actuator는 제한하지 않는다.
+        MockHttpServletResponse actuator = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), actuator, new MockFilterChain());
+        assertThat(actuator.getStatus()).isEqualTo(200);
+
+        release.countDown();
+        first.join();
+        assertThat(filter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void asyncResponseHoldsPermitUntilComplete() throws Exception {
+        ConnectionLimitFilter filter = new ConnectionLimitFilter(1, Duration.ofMillis(100));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/members/export");
+        request.setAsyncSupported(true);
+
+        //StreamingResponseBody처럼 doFilter가 먼저 돌아온다.
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertThat(filter.getAvailablePermits()).isZero();
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(filter.getAvailablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,174 @@
+package study.ex_query_dsl.config;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberJpaRepository;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 메모리 H2 두 개를 primary/replica로 쓴다.
+ * 복제는 primary를 SCRIPT로 떠서 replica에 그대로 실행하는 걸로 흉내 낸다. (replicate())
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replicaDataSource;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+        });
+        replicate();
+        ReplicationRoutingDataSource.clearPin();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        //쓰기 트랜잭션이라 primary에서 지운다.
+        testDataCleaner.cleanUp();
+        ReplicationRoutingDataSource.clearPin();
+        new JdbcTemplate(replicaDataSource).execute("drop all objects");
+    }
+
+    @Test
+    public void readOnlyGoesToReplica() {
+        //아직 replica에 복제되지 않은 회원
+        Long teamId = new JdbcTemplate(primaryDataSource).queryForObject("select team_id from team", Long.class);
+        new JdbcTemplate(primaryDataSource).update(
+                "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", 100_000L, "member2", 20, teamId);
+
+        assertThat(memberJpaRepository.findAll()).extracting("username").containsExactly("member1");
+
+        //쓰기 트랜잭션 안에서 읽으면 primary
+        List<Member> fromPrimary = transactionTemplate.execute(status -> memberJpaRepository.findAll());
+        assertThat(fromPrimary).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    public void readYourWrites() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t", Team.class).getSingleResult();
+            em.persist(new Member("member3", 30, teamA));
+        });
+
+        //커밋한 스레드는 replica에 복제되기 전이라도 자기가 쓴 걸 본다.
+        assertThat(ReplicationRoutingDataSource.isPinned()).isTrue();
+        assertThat(memberJpaRepository.findAll()).extracting("username").containsExactlyInAnyOrder("member1", "member3");
+
+        //요청이 끝나면(고정이 풀리면) 다시 replica
+        ReplicationRoutingDataSource.clearPin();
+        assertThat(memberJpaRepository.findAll()).extracting("username").containsExactly("member1");
+    }
+
+    @Test
+    public void webReadGoesToReplica() throws Exception {
+        Long teamId = new JdbcTemplate(primaryDataSource).queryForObject("select team_id from team", Long.class);
+        new JdbcTemplate(primaryDataSource).update(
+                "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", 100_000L, "member2", 20, teamId);
+
+        mockMvc.perform(get("/v1/members"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].username").value("member1"));
+    }
+
+    @Test
+    public void webWriteAfterReadGoesToPrimary() throws Exception {
+        //읽기(replica) 다음에 쓰면 쓰기는 primary, 그 뒤 읽기도 primary
+        mockMvc.perform(get("/test/read-then-write"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        assertThat(new JdbcTemplate(primaryDataSource)
+                .queryForObject("select count(*) from member where username = 'member3'", Long.class)).isEqualTo(1);
+    }
+
+    @TestConfiguration
+    static class ReadThenWriteConfig {
+        @Bean
+        ReadThenWriteController readThenWriteController(MemberJpaRepository memberJpaRepository,
+                                                        TransactionTemplate transactionTemplate, EntityManager em) {
+            return new ReadThenWriteController(memberJpaRepository, transactionTemplate, em);
+        }
+    }
+
+    @RestController
+    @RequiredArgsConstructor
+    static class ReadThenWriteController {
+        private final MemberJpaRepository memberJpaRepository;
+        private final TransactionTemplate transactionTemplate;
+        private final EntityManager em;
+
+        @GetMapping("/test/read-then-write")
+        public List<MemberTeamDto> readThenWrite() {
+            memberJpaRepository.search(new MemberSearchCondition());
+            transactionTemplate.executeWithoutResult(status -> {
+                Team teamA = em.createQuery("select t from Team t", Team.class).getSingleResult();
+                em.persist(new Member("member3", 30, teamA));
+            });
+            return memberJpaRepository.search(new MemberSearchCondition());
+        }
+    }
+
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("script", String.class);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("drop all objects");
+        script.forEach(replica::execute);
+    }
+}
@@ -0,0 +1,114 @@
+package study.ex_query_dsl.controller;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberBulkRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 버전은 커밋 후에 올라가므로 데이터를 커밋하고 끝나면 지운다.
+ * settle을 0으로 둬서 바뀌자마자 새 ETag가 나오게 한다.
+ */
+@SpringBootTest(properties = "etag.settle=0s")
+class MemberControllerEtagTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberController memberController;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void notModifiedWithoutQuery() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertThat(memberController.searchMemberV1(new MemberSearchCondition(), webRequest(null, first))).hasSize(2);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        Object[] body = new Object[1];
+        //304는 DB를 안 쓴다.
+        assertThat(SqlCapture.capture(() -> body[0] = memberController.searchMemberV1(new MemberSearchCondition(),
+                webRequest(etag, second)))).isEmpty();
+        assertThat(body[0]).isNull();
+        assertThat(second.getStatus()).isEqualTo(304);
+
+        MockHttpServletResponse page = new MockHttpServletResponse();
+        assertThat(memberController.searchMemberV3(new MemberSearchCondition(), PageRequest.of(0, 10), CountMode.EXACT,
+                webRequest(etag, page))).isNull();
+        assertThat(page.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    public void modifiedAfterWrite() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        memberController.searchMemberV1(new MemberSearchCondition(), webRequest(null, first));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        //Hibernate 이벤트
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member3", 30)));
+
+        MockHttpServletResponse afterInsert = new MockHttpServletResponse();
+        assertThat(memberController.searchMemberV1(new MemberSearchCondition(), webRequest(etag, afterInsert))).hasSize(3);
+        assertThat(afterInsert.getStatus()).isEqualTo(200);
+        String etagAfterInsert = afterInsert.getHeader(HttpHeaders.ETAG);
+        assertThat(etagAfterInsert).isNotEqualTo(etag);
+
+        //벌크 execute()
+        memberBulkRepository.addAge(new MemberSearchCondition(), 1, MemberBulkRepository.DEFAULT_CHUNK_SIZE);
+
+        MockHttpServletResponse afterBulk = new MockHttpServletResponse();
+        assertThat(memberController.searchMemberV1(new MemberSearchCondition(), webRequest(etagAfterInsert, afterBulk)))
+                .extracting("age").containsExactlyInAnyOrder(11, 21, 31);
+        assertThat(afterBulk.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etagAfterInsert);
+    }
+
+    private static ServletWebRequest webRequest(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/members");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
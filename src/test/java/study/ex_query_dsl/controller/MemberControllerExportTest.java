@@ -0,0 +1,106 @@
+package study.ex_query_dsl.controller;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberTestRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * export는 응답을 쓰는 스레드에서 따로 조회하므로 데이터를 커밋하고 끝나면 지운다.
+ * 회원 수는 EXPORT_FETCH_SIZE(1000)보다 많게 둬서 fetch가 여러 번 나뉘게 한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerExportTest {
+    private static final int MEMBERS = 2_500;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void exportWritesOneLinePerMember() throws Exception {
+        MvcResult started = mockMvc.perform(get("/v1/members/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(MEMBERS);
+        assertThat(lines[0]).contains("\"username\":\"member0\"").contains("\"teamName\":\"teamA\"");
+        assertThat(lines[MEMBERS - 1]).contains("\"username\":\"member" + (MEMBERS - 1) + "\"");
+    }
+
+    @Test
+    public void exportClearsPersistenceContextEveryFetchSize() {
+        int fetchSize = 100;
+        List<Boolean> managed = new ArrayList<>();
+
+        long exported = transactionTemplate.execute(status -> {
+            //export와 같은 영속성 컨텍스트에 엔티티를 하나 올려두고 언제 비워지는지 본다.
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            return memberTestRepository.exportSearch(new MemberSearchCondition(), fetchSize,
+                    dto -> managed.add(em.contains(teamA)));
+        });
+
+        assertThat(exported).isEqualTo(MEMBERS);
+        assertThat(managed).hasSize(MEMBERS);
+        //첫 fetchSize 행까지는 그대로, 그 다음 행부터는 비워진 뒤다.
+        assertThat(managed.subList(0, fetchSize)).containsOnly(true);
+        assertThat(managed.subList(fetchSize, MEMBERS)).containsOnly(false);
+    }
+}
@@ -0,0 +1,144 @@
+package study.ex_query_dsl.fulltext;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberBulkRepository;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스는 커밋된 뒤에 반영되므로 테스트 데이터도 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberTextIndexTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberTextIndex memberTextIndex;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team redSox = new Team("RedSox");
+            Team redWings = new Team("RedWings");
+            Team blue = new Team("Blue");
+            em.persist(redSox);
+            em.persist(redWings);
+            em.persist(blue);
+
+            em.persist(new Member("Alice", 10, redSox));
+            em.persist(new Member("alicia", 20, redWings));
+            em.persist(new Member("Bob", 30, blue));
+            em.persist(new Member("malik", 40, blue));
+        });
+        //앞 테스트의 정리(벌크 삭제)로 다시 만드는 중일 수 있으니 여기서 다 만들어두고 시작한다.
+        memberTextIndex.rebuild();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void prefixContainsFuzzy() {
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("ALI");
+        assertThat(memberRepository.search(prefix)).extracting("username").containsExactlyInAnyOrder("Alice", "alicia");
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("li");
+        assertThat(memberRepository.search(contains)).extracting("username")
+                .containsExactlyInAnyOrder("Alice", "alicia", "malik");
+        //3글자보다 긴 검색어 : 조각(lic, ici)이 전부 있어야 한다.
+        contains.setUsernameContains("LICI");
+        assertThat(memberRepository.search(contains)).extracting("username").containsExactly("alicia");
+
+        //오타 : alise -> alice
+        MemberSearchCondition fuzzy = new MemberSearchCondition();
+        fuzzy.setUsernameFuzzy("alise");
+        assertThat(memberRepository.search(fuzzy)).extracting("username").contains("Alice");
+
+        //다른 조건과 같이
+        MemberSearchCondition teamPrefix = new MemberSearchCondition();
+        teamPrefix.setTeamNamePrefix("red");
+        teamPrefix.setAgeGoe(15);
+        assertThat(memberRepository.search(teamPrefix)).extracting("username").containsExactly("alicia");
+        assertThat(memberRepository.searchPageComplex(teamPrefix, PageRequest.of(0, 10)).getContent())
+                .extracting("teamName").containsExactly("RedWings");
+    }
+
+    @Test
+    public void syncAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member bob = em.createQuery("select m from Member m where m.username = 'Bob'", Member.class).getSingleResult();
+            bob.setUsername("Robert");
+            em.persist(new Member("Roberta", 50));
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("rob");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("Robert", "Roberta");
+
+        condition.setUsernamePrefix("bob");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void bulkAgeChangeKeepsIndex() {
+        memberBulkRepository.addAge(new MemberSearchCondition(), 1, MemberBulkRepository.DEFAULT_CHUNK_SIZE);
+        memberBulkRepository.delete(bob(), MemberBulkRepository.DEFAULT_CHUNK_SIZE);
+
+        //이름은 그대로라 다시 만들지 않고 계속 인덱스로 찾는다. (DB like로 바뀌지 않는다)
+        assertThat(memberTextIndex.usernameStartsWith("ali").toString()).doesNotContainIgnoringCase("startsWith");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("ali");
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(11, 21);
+    }
+
+    private static MemberSearchCondition bob() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("Bob");
+        return condition;
+    }
+
+    @Test
+    public void uncommittedChangesAreVisible() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("Alina", 60));
+            em.flush();
+
+            //아직 인덱스에 없지만 DB like로 조회하므로 보인다.
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsernamePrefix("ali");
+            assertThat(memberRepository.search(condition)).extracting("username")
+                    .containsExactlyInAnyOrder("Alice", "alicia", "Alina");
+            status.setRollbackOnly();
+        });
+    }
+}
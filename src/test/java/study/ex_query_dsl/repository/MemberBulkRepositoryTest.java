@@ -0,0 +1,115 @@
+package study.ex_query_dsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * chunk마다 별도 트랜잭션으로 커밋되기 때문에 테스트 데이터도 커밋해두고 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void addAgeInChunks() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        long affected = memberBulkRepository.addAge(condition, 1, 3);
+
+        assertThat(affected).isEqualTo(5);
+        List<Integer> ages = em.createQuery(
+                        "select m.age from Member m where m.team.name = 'teamA' order by m.age", Integer.class)
+                .getResultList();
+        assertThat(ages).containsExactly(1, 21, 41, 61, 81);
+    }
+
+    @Test
+    public void detachOnlyAffectedMembers() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member0 = em.createQuery("select m from Member m where m.username = 'member0'", Member.class)
+                    .getSingleResult();
+            Team teamA = member0.getTeam();
+            teamA.getName(); //프록시 초기화
+
+            memberBulkRepository.addAge(new MemberSearchCondition(), 1, 1000);
+
+            //Member는 영속성 컨텍스트에서 빠지고, 상관없는 Team은 그대로 남는다.
+            assertThat(em.contains(member0)).isFalse();
+            assertThat(em.contains(teamA)).isTrue();
+
+            Member reloaded = em.find(Member.class, member0.getId());
+            assertThat(reloaded.getAge()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    public void deleteInChunks() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(50);
+
+        long deleted = memberBulkRepository.delete(condition, 2);
+
+        assertThat(deleted).isEqualTo(5);
+        Long remaining = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        assertThat(remaining).isEqualTo(5);
+    }
+
+    @Test
+    public void deleteByTextCondition() {
+        //텍스트 조건만 있어도 전체가 아니라 맞는 회원만
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("MEMBER1");
+
+        assertThat(memberBulkRepository.delete(condition, 3)).isEqualTo(1);
+        Long remaining = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        assertThat(remaining).isEqualTo(9);
+
+        MemberSearchCondition fuzzy = new MemberSearchCondition();
+        fuzzy.setUsernameFuzzy("membr2");
+        assertThatThrownBy(() -> memberBulkRepository.delete(fuzzy, 3)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -147,6 +147,8 @@ class MemberJpaRepositoryTest {
 
         List<MemberTeamDto> result = memberJpaRepository.search(condition);
         assertThat(result).extracting("username").containsExactly("member4");
+        //팀 조인 없이 TeamNameDictionary에서 채운 팀 이름
+        assertThat(result).extracting("teamName").containsExactly("teamB");
     }
 
 }
\ No newline at end of file
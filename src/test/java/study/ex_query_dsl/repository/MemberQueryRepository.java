@@ -1,6 +1,7 @@
 package study.ex_query_dsl.repository;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Repository;
@@ -13,6 +14,7 @@ import java.util.List;
 import static org.springframework.util.StringUtils.hasText;
 import static study.ex_query_dsl.entity.QMember.member;
 import static study.ex_query_dsl.entity.QTeam.team;
+import static study.ex_query_dsl.repository.support.JoinElimination.leftJoinIfUsed;
 
 /**
  * 쿼리가 복잡하고 특화된 기능이면
@@ -30,7 +32,7 @@ public class MemberQueryRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -39,14 +41,13 @@ public class MemberQueryRepository {
                         team.name.as("teamName")
                 ))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+                );
+        return leftJoinIfUsed(query, member.team, team).fetch();
     }
 
     private BooleanExpression usernameEq(String username) {
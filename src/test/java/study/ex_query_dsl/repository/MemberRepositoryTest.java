@@ -6,13 +6,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.CountedPage;
+import study.ex_query_dsl.dto.MemberCursor;
+import study.ex_query_dsl.dto.MemberCursorResult;
 import study.ex_query_dsl.dto.MemberSearchCondition;
 import study.ex_query_dsl.dto.MemberTeamDto;
 import study.ex_query_dsl.entity.Member;
 import study.ex_query_dsl.entity.QMember;
 import study.ex_query_dsl.entity.Team;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -95,6 +102,91 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchSliceTest() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchByCursorTest() throws Exception {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 20, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberCursorResult first = memberRepository.searchByCursor(condition, new MemberCursor(), 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.isHasNext()).isTrue();
+
+        //같은 age(20) 안에서는 member_id로 이어서 읽는다.
+        MemberCursorResult second = memberRepository.searchByCursor(condition, first.getNext(), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNext()).isNull();
+    }
+
+    @Test
+    public void searchPageComplexByDeferredJoin() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+
+        //1) id만 잘라내고(조인 없이) 2) 그 페이지 id만 팀과 조인해서 읽는다.
+        List<CountedPage<MemberTeamDto>> result = new ArrayList<>();
+        List<String> sqls = SqlCapture.capture(() -> result.add(
+                memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(1, 2), CountMode.EXACT)));
+        CountedPage<MemberTeamDto> page = result.get(0);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(page.getContent()).extracting("teamName").containsExactly("teamB", "teamB");
+        assertThat(sqls).filteredOn(sql -> sql.toLowerCase().contains("offset")).singleElement()
+                .satisfies(sql -> assertThat(sql).doesNotContainIgnoringCase("join"));
+
+        //팀 조건이 있으면 id 쿼리에도 조인
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        CountedPage<MemberTeamDto> teamAPage = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1), CountMode.EXACT);
+        assertThat(teamAPage.getTotalElements()).isEqualTo(2);
+        assertThat(teamAPage.getContent()).extracting("username").containsExactly("member1");
+    }
+
     /**
      * QuerydslPredicateExecutor -> 실무에서는 권장X
      */
@@ -0,0 +1,86 @@
+package study.ex_query_dsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.config.CacheConfig;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시 무효화는 커밋 이후에 일어나기 때문에 @Transactional(롤백)을 쓰지 않고 실제로 커밋한다.
+ */
+@SpringBootTest(properties = {
+        "spring.cache.type=caffeine",
+        "spring.cache.cache-names=memberSearch,memberSearchPage",
+        "spring.cache.caffeine.spec=maximumSize=100,recordStats"
+})
+class MemberSearchCacheTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void searchIsCachedAndEvictedOnWrite() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        List<MemberTeamDto> first = memberRepository.search(condition);
+        //빈 문자열은 null과 같은 조건이므로 같은 캐시 키를 쓴다.
+        condition.setUsername("");
+        List<MemberTeamDto> second = memberRepository.search(condition);
+
+        assertThat(first).extracting("username").containsExactly("member1");
+        assertThat(second).isSameAs(first);
+        assertThat(nativeCache().stats().hitCount()).isEqualTo(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class)
+                    .getSingleResult();
+            em.persist(new Member("member2", 20, teamA));
+        });
+
+        List<MemberTeamDto> afterWrite = memberRepository.search(condition);
+        assertThat(afterWrite).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    private Cache<Object, Object> nativeCache() {
+        return ((CaffeineCache) cacheManager.getCache(CacheConfig.MEMBER_SEARCH)).getNativeCache();
+    }
+}
@@ -0,0 +1,117 @@
+package study.ex_query_dsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.support.QueryTemplateStats;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    public void searchReusesTemplatePerShape() {
+        QueryTemplateStats before = memberTestRepository.getTemplateStats();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        List<MemberTeamDto> first = memberTestRepository.search(condition);
+
+        //값만 다르고 shape는 같다.
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+        List<MemberTeamDto> second = memberTestRepository.search(condition);
+
+        assertThat(first).extracting("username").containsExactly("member4");
+        assertThat(second).extracting("username").containsExactly("member2");
+        assertThat(second).extracting("teamName").containsExactly("teamA");
+
+        QueryTemplateStats after = memberTestRepository.getTemplateStats();
+        assertThat(after.getHits() - before.getHits()).isGreaterThanOrEqualTo(1);
+        assertThat(after.getTemplates()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void readOnlySelectSkipsDirtyChecking() {
+        em.flush();
+        em.clear();
+
+        List<Member> members = memberTestRepository.readOnlySelectAll();
+        assertThat(members).hasSize(4);
+        Session session = em.unwrap(Session.class);
+        assertThat(members).allMatch(session::isReadOnly);
+
+        //read only 엔티티는 고쳐도 update가 나가지 않는다.
+        members.forEach(m -> m.setUsername("changed"));
+        em.flush();
+        em.clear();
+
+        assertThat(memberTestRepository.basicSelectFrom()).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+    }
+
+    @Test
+    public void readOnlyPagingSeesUnflushedChanges() {
+        //flush 하지 않은 회원도 페이지/슬라이스에 보여야 한다. (AUTO flush)
+        em.persist(new Member("unflushed", 50, null));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("unflushed");
+        PageRequest pageable = PageRequest.of(0, 10);
+
+        assertThat(memberTestRepository.searchPageByApplyPage(condition, pageable).getContent()).hasSize(1);
+        assertThat(memberTestRepository.applyPagination(condition, pageable).getTotalElements()).isEqualTo(1);
+        assertThat(memberTestRepository.applyPagination2(condition, pageable).getContent()).hasSize(1);
+        assertThat(memberTestRepository.applySlicing(condition, pageable).getContent()).hasSize(1);
+    }
+
+    @Test
+    public void deferredJoinKeepsPageOrder() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(15);
+        PageRequest pageable = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        Page<MemberTeamDto> deferred = memberTestRepository.searchPageByDeferredJoin(condition, pageable);
+        Page<Member> plain = memberTestRepository.applyPagination(condition, pageable);
+
+        assertThat(deferred.getTotalElements()).isEqualTo(3);
+        assertThat(deferred.getContent()).extracting("username").containsExactly("member2");
+        assertThat(deferred.getContent()).extracting("teamName").containsExactly("teamA");
+        assertThat(deferred.getContent()).extracting("memberId")
+                .containsExactlyElementsOf(plain.getContent().stream().map(Member::getId).toList());
+    }
+}
@@ -0,0 +1,66 @@
+package study.ex_query_dsl.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2차 캐시는 커밋된 데이터만 올라가므로 @Transactional(롤백)을 쓰지 않는다.
+ */
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void findByIdHitsSecondLevelCache() {
+        Long memberId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member = new Member("member1", 10, teamA);
+            em.persist(member);
+            return member.getId();
+        });
+        emf.getCache().evictAll();
+
+        CacheRegionStatistics region = emf.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Member.class.getName());
+        long hitsBefore = region.getHitCount();
+
+        //트랜잭션 밖이라 호출마다 새 EntityManager -> 1차 캐시가 아니라 2차 캐시에서 나온다.
+        memberJpaRepository.findById(memberId);
+        memberJpaRepository.findById(memberId);
+
+        assertThat(region.getHitCount() - hitsBefore).isEqualTo(1);
+    }
+}
@@ -0,0 +1,71 @@
+package study.ex_query_dsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.dto.TeamWithMembersDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.statement.StatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    @Test
+    public void findTeamsWithMembers() {
+        persistTeams(2, 3);
+
+        Page<TeamWithMembersDto> result = teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).extracting("name").containsExactly("team0", "team1");
+        assertThat(result.getContent().get(1).getMembers()).extracting("username")
+                .containsExactly("member1_0", "member1_1", "member1_2");
+    }
+
+    @Test
+    public void statementCountDoesNotGrowWithTeams() {
+        persistTeams(20, 3);
+
+        int fewTeams = countStatements(PageRequest.of(0, 2));
+        int manyTeams = countStatements(PageRequest.of(0, 20));
+
+        //팀 페이지 + count + 회원 한 번
+        assertThat(fewTeams).isEqualTo(3);
+        assertThat(manyTeams).isEqualTo(fewTeams);
+    }
+
+    private int countStatements(PageRequest pageRequest) {
+        em.clear();
+        try (StatementCounter counter = StatementCounter.open()) {
+            Page<TeamWithMembersDto> page = teamQueryRepository.findTeamsWithMembers(pageRequest);
+            assertThat(page.getContent()).allSatisfy(team -> assertThat(team.getMembers()).hasSize(3));
+            return counter.getCount();
+        }
+    }
+
+    private void persistTeams(int teams, int membersPerTeam) {
+        for (int i = 0; i < teams; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < membersPerTeam; j++) {
+                em.persist(new Member("member" + i + "_" + j, 10 + j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,159 @@
+package study.ex_query_dsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.TeamStatsDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * team_stats는 커밋 직전에 반영되므로 테스트 데이터도 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void insert() {
+        TeamStatsDto teamA = stats().get("teamA");
+
+        assertThat(teamA.getMemberCount()).isEqualTo(2);
+        assertThat(teamA.getAvgAge()).isEqualTo(15);
+        assertThat(teamA.getMinAge()).isEqualTo(10);
+        assertThat(teamA.getMaxAge()).isEqualTo(20);
+        assertThat(teamA.getAgeHistogram()[1]).isEqualTo(1);
+        assertThat(teamA.getAgeHistogram()[2]).isEqualTo(1);
+        assertSameAsGroupBy();
+    }
+
+    @Test
+    public void changeTeamAndAge() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member4 = findMember("member4");
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            member4.changeTeam(teamA);
+            findMember("member1").setAge(5);
+        });
+
+        Map<String, TeamStatsDto> stats = stats();
+        assertThat(stats.get("teamA").getMemberCount()).isEqualTo(3);
+        assertThat(stats.get("teamA").getMinAge()).isEqualTo(5);
+        assertThat(stats.get("teamA").getMaxAge()).isEqualTo(40);
+        assertThat(stats.get("teamB").getMemberCount()).isEqualTo(1);
+        assertThat(stats.get("teamB").getMaxAge()).isEqualTo(30);
+        assertSameAsGroupBy();
+    }
+
+    @Test
+    public void deleteRecomputesMinMax() {
+        transactionTemplate.executeWithoutResult(status -> em.remove(findMember("member1")));
+
+        TeamStatsDto teamA = stats().get("teamA");
+        assertThat(teamA.getMemberCount()).isEqualTo(1);
+        assertThat(teamA.getMinAge()).isEqualTo(20);
+        assertSameAsGroupBy();
+    }
+
+    @Test
+    public void bulkUpdateAndDelete() {
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        //팀 전체를 다시 집계하지 않고 chunk 구간의 전후 차이만 반영한다.
+        List<String> sqls = SqlCapture.capture(() -> memberBulkRepository.addAge(teamB, 50, 2));
+        assertThat(sqls).noneMatch(sql -> sql.toLowerCase().contains("merge into team_stats"));
+
+        MemberSearchCondition young = new MemberSearchCondition();
+        young.setAgeLoe(10);
+        memberBulkRepository.delete(young, 2);
+
+        Map<String, TeamStatsDto> stats = stats();
+        assertThat(stats.get("teamB").getMinAge()).isEqualTo(80);
+        assertThat(stats.get("teamB").getAgeHistogram()[9]).isEqualTo(1);
+        assertThat(stats.get("teamA").getMemberCount()).isEqualTo(1);
+        assertSameAsGroupBy();
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+
+    private Map<String, TeamStatsDto> stats() {
+        return transactionTemplate.execute(status -> teamStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(TeamStatsDto::getTeamName, Function.identity())));
+    }
+
+    //group() 테스트와 같은 집계를 직접 해서 비교한다.
+    private void assertSameAsGroupBy() {
+        List<Tuple> expected = transactionTemplate.execute(status -> queryFactory
+                .select(team.name, member.count(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .fetch());
+        Map<String, TeamStatsDto> stats = stats();
+        for (Tuple row : expected) {
+            TeamStatsDto actual = stats.get(row.get(team.name));
+            assertThat(actual.getMemberCount()).isEqualTo(row.get(member.count()));
+            assertThat(actual.getMinAge()).isEqualTo(row.get(member.age.min()));
+            assertThat(actual.getMaxAge()).isEqualTo(row.get(member.age.max()));
+        }
+    }
+}
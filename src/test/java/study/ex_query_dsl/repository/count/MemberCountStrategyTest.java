@@ -0,0 +1,126 @@
+package study.ex_query_dsl.repository.count;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.dto.CountMode;
+import study.ex_query_dsl.dto.CountedPage;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 캐시 무효화는 커밋 이후에 일어나고 추정은 테이블 통계를 보므로 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "member.count.sample-size=10")
+class MemberCountStrategyTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void cachedCountIsReusedUntilWrite() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        CountedPage<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.CACHED);
+        assertThat(first.getTotalElements()).isEqualTo(50);
+        assertThat(first.getCountMode()).isEqualTo(CountMode.CACHED);
+
+        //다른 페이지라도 같은 조건이면 count 쿼리 없이 content만 (지연 조인이라 id 쿼리 + 행 쿼리)
+        List<CountedPage<MemberTeamDto>> result = new ArrayList<>();
+        List<String> sqls = SqlCapture.capture(() ->
+                result.add(memberRepository.searchPageComplex(condition, PageRequest.of(1, 10), CountMode.CACHED)));
+        assertThat(sqls).hasSize(2);
+        assertThat(sqls).noneMatch(sql -> sql.toLowerCase().contains("count("));
+        assertThat(result.get(0).getTotalElements()).isEqualTo(50);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            em.persist(new Member("member100", 100, teamA));
+        });
+
+        CountedPage<MemberTeamDto> afterWrite = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.CACHED);
+        assertThat(afterWrite.getTotalElements()).isEqualTo(51);
+    }
+
+    @Test
+    public void estimatedCount() {
+        //조건 없음 : 테이블 통계
+        CountedPage<MemberTeamDto> all = memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 10), CountMode.ESTIMATED);
+        assertThat(all.getCountMode()).isEqualTo(CountMode.ESTIMATED);
+        assertThat(all.getTotalElements()).isCloseTo(100L, within(10L));
+
+        //조건 있음 : 샘플 구간에서 teamA 비율(절반) * 전체
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        CountedPage<MemberTeamDto> teamA = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.ESTIMATED);
+        assertThat(teamA.getCountMode()).isEqualTo(CountMode.ESTIMATED);
+        assertThat(teamA.getTotalElements()).isCloseTo(50L, within(15L));
+    }
+
+    @Test
+    public void estimateNeverEndsPagingEarly() {
+        //나이 88~99 12명은 id 끝쪽에 몰려 있어서 샘플 구간에 안 걸리면 추정이 0이 된다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(88);
+        for (int i = 0; i < 20; i++) {
+            CountedPage<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.ESTIMATED);
+            assertThat(page.getContent()).hasSize(10);
+            assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(11);
+            assertThat(page.hasNext()).isTrue();
+        }
+    }
+
+    @Test
+    public void lastPageIsExact() {
+        //content가 한 페이지를 다 못 채우면 count 없이 정확한 total을 안다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(95);
+        CountedPage<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.ESTIMATED);
+        assertThat(page.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+    }
+}
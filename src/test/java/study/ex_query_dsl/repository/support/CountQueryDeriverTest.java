@@ -0,0 +1,117 @@
+package study.ex_query_dsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class CountQueryDeriverTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50)); //팀 없음
+        em.flush();
+    }
+
+    @Test
+    public void stripsFetchJoinAndOrderBy() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(member.age.goe(20))
+                .orderBy(member.username.desc());
+
+        String sql = countSql(query, 4);
+        assertThat(sql).doesNotContainIgnoringCase("join");
+        assertThat(sql).doesNotContainIgnoringCase("order by");
+    }
+
+    @Test
+    public void keepsJoinUsedByWhere() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(team.name.eq("teamB"));
+
+        assertThat(countSql(query, 2)).containsIgnoringCase("join");
+    }
+
+    @Test
+    public void collectionFetchJoinCountsRoot() {
+        //content는 Hibernate가 team 중복을 없애므로 team 수가 맞다.
+        JPAQuery<Team> query = queryFactory
+                .selectFrom(team)
+                .leftJoin(team.members, member).fetchJoin();
+
+        assertThat(query.clone(em).fetch()).hasSize(2);
+        assertThat(countSql(query, 2)).doesNotContainIgnoringCase("join");
+    }
+
+    @Test
+    public void groupByCountsGroups() {
+        //teamA, teamB, 팀 없음(null) 3그룹
+        JPAQuery<?> query = queryFactory
+                .select(member.team.id, member.count())
+                .from(member)
+                .groupBy(member.team.id);
+        assertThat(query.clone(em).fetch()).hasSize(3);
+        assertThat(countSql(query, 3)).doesNotContainIgnoringCase("group by");
+
+        JPAQuery<?> having = queryFactory
+                .select(member.team.id, member.count())
+                .from(member)
+                .groupBy(member.team.id)
+                .having(member.count().goe(2));
+        countSql(having, 2);
+    }
+
+    @Test
+    public void distinctCountsDistinctRows() {
+        JPAQuery<Long> query = queryFactory
+                .select(member.team.id)
+                .distinct()
+                .from(member);
+        assertThat(query.clone(em).fetch()).hasSize(3);
+        countSql(query, 3);
+    }
+
+    private String countSql(JPAQuery<?> query, long expected) {
+        List<Long> result = new ArrayList<>();
+        List<String> sqls = SqlCapture.capture(() -> result.add(CountQueryDeriver.derive(query).apply(em)));
+
+        assertThat(result.get(0)).isEqualTo(expected);
+        assertThat(sqls).hasSize(1);
+        return sqls.get(0);
+    }
+}
@@ -0,0 +1,86 @@
+package study.ex_query_dsl.repository.support;
+
+import com.querydsl.jpa.JPAExpressions;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.advisor.SqlCapture;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class JoinEliminationTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+    }
+
+    @Test
+    public void countWithoutTeamConditionHasNoJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        List<Page<MemberTeamDto>> result = new ArrayList<>();
+        List<String> sqls = SqlCapture.capture(() -> result.add(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1))));
+
+        assertThat(result.get(0).getTotalElements()).isEqualTo(3);
+        //content는 팀 컬럼을 select 하므로 조인, count는 조인 없이
+        assertThat(sqls).hasSize(2);
+        assertThat(sqls.get(0)).containsIgnoringCase("join");
+        assertThat(sqls.get(1)).doesNotContainIgnoringCase("join");
+    }
+
+    @Test
+    public void countWithTeamConditionKeepsJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<Page<MemberTeamDto>> result = new ArrayList<>();
+        List<String> sqls = SqlCapture.capture(() -> result.add(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1))));
+
+        assertThat(result.get(0).getTotalElements()).isEqualTo(2);
+        assertThat(sqls).hasSize(2);
+        assertThat(sqls.get(1)).containsIgnoringCase("join");
+    }
+
+    @Test
+    public void usesIgnoresSubQueryOwnAlias() {
+        //서브쿼리가 자기 from에 team을 선언했으면 바깥 team을 쓰는 게 아니다.
+        assertThat(JoinElimination.uses(member.team.id.in(
+                JPAExpressions.select(team.id).from(team).where(team.name.eq("teamA"))), team)).isFalse();
+        assertThat(JoinElimination.uses(member.team.id.eq(team.id), team)).isTrue();
+        assertThat(JoinElimination.uses(member.team.id.eq(1L), team)).isFalse();
+    }
+}
@@ -0,0 +1,143 @@
+package study.ex_query_dsl.repository.support;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.ex_query_dsl.TestDataCleaner;
+import study.ex_query_dsl.dto.MemberSearchCondition;
+import study.ex_query_dsl.dto.MemberTeamDto;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * count는 다른 커넥션에서 실행되므로 테스트 데이터를 커밋해두고 끝나면 지운다.
+ */
+@SpringBootTest(properties = "querydsl.page.parallel=true")
+class PageExecutorTest {
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PageExecutor pageExecutor;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void parallelPage() {
+        assertThat(pageExecutor.isParallel()).isTrue();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting("teamName").containsOnly("teamA");
+        assertThat(page.getContent()).hasSize(2);
+
+        //content는 호출한 스레드에서, count는 다른 스레드의 자기 읽기 전용 트랜잭션에서
+        Thread caller = Thread.currentThread();
+        List<Thread> countThreads = new ArrayList<>();
+        List<Boolean> readOnly = new ArrayList<>();
+        Page<Member> members = pageExecutor.getPage(PageRequest.of(1, 2),
+                () -> em.createQuery("select m from Member m order by m.id", Member.class)
+                        .setFirstResult(2)
+                        .setMaxResults(2)
+                        .getResultList(),
+                countEm -> {
+                    countThreads.add(Thread.currentThread());
+                    readOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                    return countEm.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+                });
+
+        assertThat(members.getTotalElements()).isEqualTo(10);
+        assertThat(countThreads).hasSize(1).doesNotContain(caller);
+        assertThat(readOnly).containsExactly(true);
+    }
+
+    @Test
+    public void sequentialWithOpenEntityManagerInView() {
+        //OSIV처럼 요청 EntityManager를 바인딩해두면 count도 호출한 스레드에서 돈다.
+        EntityManager requestEm = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEm));
+        try {
+            List<Thread> countThreads = new ArrayList<>();
+            Page<Member> members = pageExecutor.getPage(PageRequest.of(1, 2),
+                    () -> em.createQuery("select m from Member m order by m.id", Member.class)
+                            .setFirstResult(2)
+                            .setMaxResults(2)
+                            .getResultList(),
+                    countEm -> {
+                        countThreads.add(Thread.currentThread());
+                        return countEm.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+                    });
+
+            assertThat(members.getTotalElements()).isEqualTo(10);
+            assertThat(countThreads).containsExactly(Thread.currentThread());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEm.close();
+        }
+    }
+
+    @Test
+    public void sequentialInsideTransaction() {
+        //트랜잭션 안에서는 같은 커넥션에서 차례로 실행하므로 아직 커밋 안 된 회원도 센다.
+        Page<MemberTeamDto> page = transactionTemplate.execute(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            em.persist(new Member("member10", 100, teamA));
+            em.flush();
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamA");
+            Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+            status.setRollbackOnly();
+            return result;
+        });
+
+        assertThat(page.getTotalElements()).isEqualTo(6);
+    }
+}
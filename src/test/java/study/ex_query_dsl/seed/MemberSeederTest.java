@@ -0,0 +1,84 @@
+package study.ex_query_dsl.seed;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.ex_query_dsl.TestDataCleaner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.ex_query_dsl.entity.QMember.member;
+import static study.ex_query_dsl.entity.QTeam.team;
+
+/**
+ * seeder는 배치마다 트랜잭션을 커밋하므로 끝나면 지운다.
+ * batch-size를 회원 수보다 작게 둬서 배치가 여러 번 나뉘게 한다.
+ */
+@SpringBootTest(properties = {
+        "seed.batch-size=64",
+        "seed.team-size-skew=1.0",
+        "seed.age-histogram[0].min=20",
+        "seed.age-histogram[0].max=29",
+        "seed.age-histogram[0].weight=3",
+        "seed.age-histogram[1].min=60",
+        "seed.age-histogram[1].max=61",
+        "seed.age-histogram[1].weight=1"
+})
+class MemberSeederTest {
+
+    @Autowired
+    MemberSeeder memberSeeder;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TestDataCleaner testDataCleaner;
+
+    @AfterEach
+    public void cleanUp() {
+        testDataCleaner.cleanUp();
+    }
+
+    @Test
+    public void seedTeamsAndMembers() {
+        memberSeeder.seed(5, 500);
+
+        assertThat(queryFactory.select(team.name).from(team).orderBy(team.id.asc()).fetch())
+                .containsExactly("teamA", "teamB", "teamC", "teamD", "teamE");
+        assertThat(queryFactory.select(member.count()).from(member).fetchOne()).isEqualTo(500L);
+
+        //모든 회원이 seed한 팀 중 하나에 들어간다.
+        assertThat(queryFactory.select(member.count()).from(member).where(member.team.isNull()).fetchOne()).isZero();
+
+        //나이는 히스토그램 구간 안에서만
+        assertThat(queryFactory.select(member.age).from(member).fetch())
+                .allMatch(age -> age >= 20 && age <= 29 || age >= 60 && age <= 61);
+
+        //Zipf(1.0) : 앞쪽 팀일수록 크다. (teamA 기대값 ≈ 500 / H(5) ≈ 219, teamE ≈ 44)
+        List<Tuple> sizes = queryFactory
+                .select(team.name, member.count())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .orderBy(team.name.asc())
+                .fetch();
+        assertThat(sizes).hasSize(5);
+        assertThat(sizes.stream().mapToLong(row -> row.get(member.count())).sum()).isEqualTo(500L);
+        long teamA = sizes.get(0).get(member.count());
+        long teamE = sizes.get(4).get(member.count());
+        assertThat(teamA).isBetween(170L, 270L);
+        assertThat(teamA).isGreaterThan(teamE * 2);
+    }
+
+    @Test
+    public void teamNamesAfterZ() {
+        assertThat(MemberSeeder.teamName(0)).isEqualTo("teamA");
+        assertThat(MemberSeeder.teamName(25)).isEqualTo("teamZ");
+        assertThat(MemberSeeder.teamName(26)).isEqualTo("team26");
+    }
+}
@@ -0,0 +1,83 @@
+package study.ex_query_dsl.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WeightedSamplerTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    public void zipfFollowsWeights() {
+        int size = 10;
+        double[] frequency = frequency(WeightedSampler.zipf(size, 1.0), size, new SplittableRandom(42));
+
+        //k번째 항목 : (1 / (k + 1)) / H(10)
+        double harmonic = 0;
+        for (int k = 1; k <= size; k++) {
+            harmonic += 1.0 / k;
+        }
+        for (int k = 0; k < size; k++) {
+            assertThat(frequency[k]).as("team %d", k).isCloseTo(1.0 / (k + 1) / harmonic, within(0.01));
+        }
+    }
+
+    @Test
+    public void zeroExponentIsUniform() {
+        int size = 8;
+        double[] frequency = frequency(WeightedSampler.zipf(size, 0.0), size, new SplittableRandom(42));
+        for (double f : frequency) {
+            assertThat(f).isCloseTo(1.0 / size, within(0.01));
+        }
+    }
+
+    @Test
+    public void zeroWeightIsNeverSampled() {
+        double[] frequency = frequency(new WeightedSampler(new double[]{0, 1, 0, 3, 0}), 5, new SplittableRandom(7));
+        assertThat(frequency[0]).isZero();
+        assertThat(frequency[2]).isZero();
+        assertThat(frequency[4]).isZero();
+        assertThat(frequency[1]).isCloseTo(0.25, within(0.01));
+        assertThat(frequency[3]).isCloseTo(0.75, within(0.01));
+    }
+
+    @Test
+    public void boundsAtRandomExtremes() {
+        WeightedSampler sampler = new WeightedSampler(new double[]{0, 2, 2, 0});
+        //nextDouble()의 양 끝 : 0이면 첫 번째, 1 바로 아래면 마지막 가중치 있는 항목
+        assertThat(sampler.sample(fixed(0.0))).isEqualTo(1);
+        assertThat(sampler.sample(fixed(0.5))).isEqualTo(2);
+        assertThat(sampler.sample(fixed(Math.nextDown(1.0)))).isEqualTo(2);
+    }
+
+    private static double[] frequency(WeightedSampler sampler, int size, RandomGenerator random) {
+        double[] frequency = new double[size];
+        for (int i = 0; i < SAMPLES; i++) {
+            int index = sampler.sample(random);
+            assertThat(index).isBetween(0, size - 1);
+            frequency[index]++;
+        }
+        for (int k = 0; k < size; k++) {
+            frequency[k] /= SAMPLES;
+        }
+        return frequency;
+    }
+
+    private static RandomGenerator fixed(double value) {
+        return new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public double nextDouble() {
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package study.ex_query_dsl.statement;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.ex_query_dsl.entity.Member;
+import study.ex_query_dsl.entity.Team;
+import study.ex_query_dsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class StatementCounterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 4; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, 10 * i, team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void detectNPlusOne() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            //fetchJoinNo : member만 조회하고 team은 LAZY라 팀마다 select가 한 번씩 더 나간다.
+            List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+            members.forEach(member -> member.getTeam().getName());
+
+            assertThat(counter.getCount()).isEqualTo(1 + 4);
+            Map<String, Integer> repeated = counter.getRepeated(4);
+            assertThat(repeated).hasSize(1);
+            assertThat(repeated.keySet().iterator().next()).containsIgnoringCase("team");
+        }
+    }
+
+    @Test
+    public void tagWithRepositoryMethod() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            memberRepository.findByUsername("member1");
+
+            assertThat(counter.getCountsByTag()).containsEntry("MemberRepository.findByUsername", 1);
+        }
+    }
+
+    @Test
+    public void failOverBudget() {
+        try (StatementCounter counter = StatementCounter.open(1, true)) {
+            List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+
+            assertThatThrownBy(() -> members.forEach(member -> member.getTeam().getName()))
+                    .satisfies(e -> assertThat(NestedExceptionUtils.getMostSpecificCause(e))
+                            .isInstanceOf(StatementBudgetExceededException.class));
+            assertThat(counter.getCount()).isEqualTo(1);
+        }
+    }
+}